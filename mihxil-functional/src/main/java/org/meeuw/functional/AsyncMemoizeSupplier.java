@@ -0,0 +1,123 @@
+package org.meeuw.functional;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the value of a supplier, which is calculated asynchronously on an {@link Executor}. The calculation is started by the first call to {@link #get()}, and all callers receive the same {@link CompletableFuture}.
+ *
+ * @param <T> the type of the value supplied
+ * @since 1.18
+ * @see Suppliers#memoizeAsync(Supplier, Executor)
+ */
+class AsyncMemoizeSupplier<T> extends Suppliers.SupplierWrapper<CompletableFuture<T>, Supplier<T>> implements AsyncSupplier<T> {
+
+    private final Executor executor;
+    private final AtomicReference<CompletableFuture<T>> future = new AtomicReference<>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    AsyncMemoizeSupplier(Supplier<T> wrapped, Executor executor) {
+        super(wrapped, "memoize async");
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<T> get() {
+        CompletableFuture<T> result = future.get();
+        if (result == null) {
+            if (closed.get()) {
+                throw new IllegalStateException(this + " is closed");
+            }
+            CompletableFuture<T> created = new CompletableFuture<>();
+            if (future.compareAndSet(null, created)) {
+                if (closed.get()) {
+                    // closed concurrently, which may have missed the new future
+                    created.cancel(false);
+                    throw new IllegalStateException(this + " is closed");
+                }
+                try {
+                    executor.execute(() -> run(created));
+                } catch (RejectedExecutionException ree) {
+                    created.completeExceptionally(ree);
+                }
+                result = created;
+            } else {
+                result = future.get();
+            }
+        }
+        return result;
+    }
+
+    private void run(CompletableFuture<T> f) {
+        if (f.isDone()) {
+            return;
+        }
+        T value;
+        try {
+            value = wrapped.get();
+        } catch (Throwable t) {
+            f.completeExceptionally(t);
+            return;
+        }
+        if (! f.complete(value)) {
+            // cancelled (or closed) meanwhile
+            try {
+                discard(value);
+            } catch (Exception e) {
+                Suppliers.uncaught(e);
+            }
+        }
+    }
+
+    /**
+     * Cancels the calculation if it still in progress. If it was completed already, and the value is {@link AutoCloseable}, it is closed. Closing again has no effect.
+     */
+    @Override
+    public void close() throws Exception {
+        if (! closed.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture<T> f = future.get();
+        if (f != null && ! f.cancel(false) && ! f.isCompletedExceptionally()) {
+            discard(f.join());
+        }
+    }
+
+    private static void discard(Object value) throws Exception {
+        if (value instanceof AutoCloseable) {
+            ((AutoCloseable) value).close();
+        }
+    }
+
+    /**
+     * The state of this supplier, as far it is relevant for {@link #equals(Object)}
+     */
+    private Object state() {
+        CompletableFuture<T> f = future.get();
+        if (f == null) {
+            return Suppliers.MemoizeSupplier.UNSET;
+        }
+        if (f.isDone() && ! f.isCompletedExceptionally()) {
+            return f.join();
+        }
+        return f;
+    }
+
+    /**
+     * Like {@link Suppliers.MemoizeSupplier#equals(Object)}, this does not trigger the calculation. Two instances are equal if they wrap equal suppliers and executors, and either both are not started yet, or both completed with equal values.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (! super.equals(o)) return false;
+        AsyncMemoizeSupplier<?> that = (AsyncMemoizeSupplier<?>) o;
+        return Objects.equals(executor, that.executor) && Objects.equals(state(), that.state());
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
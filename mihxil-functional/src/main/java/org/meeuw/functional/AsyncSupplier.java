@@ -0,0 +1,35 @@
+package org.meeuw.functional;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A {@link Supplier} of a {@link CompletableFuture}, so that callers don't have to block while the value is calculated.
+ * <p>
+ * It is also an {@link UnwrappableCloseableSupplier}. Closing it cancels the calculation if it is still in progress, and otherwise cleans up the value if that is {@link AutoCloseable}.
+ *
+ * @param <T> The type of the value that the future will supply
+ * @since 1.18
+ * @see Suppliers#memoizeAsync(Supplier, java.util.concurrent.Executor)
+ */
+public interface AsyncSupplier<T> extends UnwrappableCloseableSupplier<CompletableFuture<T>, Supplier<T>> {
+
+    /**
+     * Waits for the value, and returns it.
+     * @return the value of the future
+     * @see CompletableFuture#join()
+     */
+    default T join() {
+        return get().join();
+    }
+
+    /**
+     * Returns the value if it is already available, without waiting for it.
+     * @param valueIfAbsent the value to return if the future is not yet completed
+     * @return the value of the future, or {@code valueIfAbsent}
+     * @see CompletableFuture#getNow(Object)
+     */
+    default T getNow(T valueIfAbsent) {
+        return get().getNow(valueIfAbsent);
+    }
+}
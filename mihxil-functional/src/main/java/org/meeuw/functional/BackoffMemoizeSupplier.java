@@ -0,0 +1,126 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Memoizes the value of a {@link ThrowingSupplier}, and also memoizes its failures for a while.
+ * <p>
+ * When the wrapped supplier throws an exception, that same exception is rethrown to all callers until a backoff period expired. After that, one caller retries, while the others still receive the exception. Every consecutive failure doubles the backoff period, until a maximum.
+ *
+ * @param <T> the type of the value supplied
+ * @param <E> the type of the exception that the supplier may throw
+ * @since 1.18
+ * @see Suppliers#memoizeWithBackoff(ThrowingSupplier, Duration, Duration)
+ */
+class BackoffMemoizeSupplier<T, E extends Exception> extends Suppliers.ThrowingSupplierWrapper<T, ThrowingSupplier<T, E>, E> {
+
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final LongSupplier ticker;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean retrying = new AtomicBoolean(false);
+
+    private transient volatile Object value = Suppliers.MemoizeSupplier.UNSET;
+    private transient volatile Failure failure;
+
+    BackoffMemoizeSupplier(ThrowingSupplier<T, E> wrapped, Duration initialBackoff, Duration maxBackoff, LongSupplier ticker) {
+        super(wrapped, "memoize with backoff " + initialBackoff + "-" + maxBackoff);
+        Objects.requireNonNull(initialBackoff, "initialBackoff");
+        Objects.requireNonNull(maxBackoff, "maxBackoff");
+        if (initialBackoff.isNegative() || initialBackoff.isZero()) {
+            throw new IllegalArgumentException("initialBackoff must be positive: " + initialBackoff);
+        }
+        if (maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("maxBackoff must not be shorter than initialBackoff: " + maxBackoff + " < " + initialBackoff);
+        }
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.initialBackoffNanos = Suppliers.toNanos(initialBackoff);
+        this.maxBackoffNanos = Suppliers.toNanos(maxBackoff);
+        this.ticker = ticker;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T getThrows() throws E {
+        Object v = value;
+        if (v != Suppliers.MemoizeSupplier.UNSET) {
+            return (T) v;
+        }
+        Failure f = failure;
+        if (f != null) {
+            if (ticker.getAsLong() - f.retryAt < 0 || ! retrying.compareAndSet(false, true)) {
+                return Sneaky.sneakyThrow(f.exception);
+            }
+            try {
+                return attempt(f);
+            } finally {
+                retrying.set(false);
+            }
+        }
+        lock.lock();
+        try {
+            v = value;
+            if (v != Suppliers.MemoizeSupplier.UNSET) {
+                return (T) v;
+            }
+            f = failure;
+            if (f != null) {
+                // the first evaluation failed while we were waiting
+                return Sneaky.sneakyThrow(f.exception);
+            }
+            return attempt(null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private T attempt(Failure previous) throws E {
+        try {
+            T result = wrapped.getThrows();
+            value = result;
+            failure = null;
+            return result;
+        } catch (Exception e) {
+            long backoff;
+            if (previous == null) {
+                backoff = initialBackoffNanos;
+            } else {
+                // doubling could overflow
+                backoff = previous.backoff > maxBackoffNanos / 2 ? maxBackoffNanos : previous.backoff * 2;
+            }
+            failure = new Failure(e, ticker.getAsLong() + backoff, backoff);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (! super.equals(o)) return false;
+        BackoffMemoizeSupplier<?, ?> that = (BackoffMemoizeSupplier<?, ?>) o;
+        return initialBackoff.equals(that.initialBackoff) && maxBackoff.equals(that.maxBackoff) && Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private static final class Failure {
+        final Exception exception;
+        final long retryAt;
+        final long backoff;
+
+        Failure(Exception exception, long retryAt, long backoff) {
+            this.exception = exception;
+            this.retryAt = retryAt;
+            this.backoff = backoff;
+        }
+    }
+}
@@ -0,0 +1,733 @@
+package org.meeuw.functional;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, concurrent cache of memoized results, as used by the {@code memoize} methods of {@link Functions}.
+ * <p>
+ * The cache is divided in segments, each with its own lock, table, and eviction policy, so the bound and the eviction order are per segment. Results are calculated outside the lock, so that a slow calculation only blocks concurrent calls for the same arguments.
+ * <p>
+ * Memoized results are looked up with an optimistic read of the {@link StampedLock} of the segment. A hit is not applied to the eviction policy immediately, but recorded in a small, lossy buffer. That buffer is drained by whoever takes the write lock: a miss, or a hit that fills the buffer and manages to {@link StampedLock#tryWriteLock() try lock}. So, the order kept by the policy is approximate, and reads do not wait for each other.
+ * <p>
+ * The key of an entry are the (at most four) arguments of a call. They are not wrapped in a tuple, but stored in parallel arrays of an open addressing table with linear probing, and hashed and compared slot by slot. So, looking up a memoized result does not allocate anything.
+ * <p>
+ * Arguments and values may be {@code null}. If a calculation fails, nothing is memoized.
+ *
+ * @param <V> the type of the values
+ * @since 1.18
+ */
+class BoundedCache<V> {
+
+    static final int MAX_ARITY = 4;
+
+    private final int arity;
+    private final Segment[] segments;
+    private final int mask;
+    private final int segmentBits;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    BoundedCache(int maxSize, Eviction eviction) {
+        this(1, maxSize, eviction);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BoundedCache(int arity, int maxSize, Eviction eviction) {
+        if (arity < 1 || arity > MAX_ARITY) {
+            throw new IllegalArgumentException("arity must be between 1 and " + MAX_ARITY + ": " + arity);
+        }
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        Objects.requireNonNull(eviction);
+        this.arity = arity;
+        // segments of at least 16 entries, and not many more segments than useful for the number of processors
+        int count = Math.min(Integer.highestOneBit(Math.max(1, maxSize / 16)), ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors()));
+        this.segments = (Segment[]) new BoundedCache.Segment[count];
+        this.mask = count - 1;
+        this.segmentBits = Integer.numberOfTrailingZeros(count);
+        int capacity = (maxSize + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity, policy(eviction, capacity));
+        }
+    }
+
+    static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static <V> Policy<V> policy(Eviction eviction, int capacity) {
+        switch (eviction) {
+            case LFU:
+                return new LfuPolicy<>();
+            case TINY_LFU:
+                return new TinyLfuPolicy<>(capacity);
+            case LRU:
+            default:
+                return new LruPolicy<>();
+        }
+    }
+
+    V get(Object a, Loader<? extends V> loader) {
+        return get(a, null, null, null, loader);
+    }
+
+    V get(Object a, Object b, Loader<? extends V> loader) {
+        return get(a, b, null, null, loader);
+    }
+
+    V get(Object a, Object b, Object c, Loader<? extends V> loader) {
+        return get(a, b, c, null, loader);
+    }
+
+    /**
+     * @param a the first argument
+     * @param b the second argument, or {@code null} if the arity is smaller
+     * @param c the third argument, or {@code null} if the arity is smaller
+     * @param d the fourth argument, or {@code null} if the arity is smaller
+     * @param loader calculates the value for the arguments, if needed
+     * @return the memoized value, or the newly calculated one
+     */
+    V get(Object a, Object b, Object c, Object d, Loader<? extends V> loader) {
+        int h = hash(a, b, c, d);
+        Segment segment = segments[(h ^ (h >>> 16)) & mask];
+        Node<V> node = segment.node(h, a, b, c, d, loader);
+        try {
+            return node.get();
+        } catch (Throwable t) {
+            segment.remove(node);
+            throw t;
+        }
+    }
+
+    private int hash(Object a, Object b, Object c, Object d) {
+        int h = Objects.hashCode(a);
+        if (arity > 1) {
+            h = 31 * h + Objects.hashCode(b);
+            if (arity > 2) {
+                h = 31 * h + Objects.hashCode(c);
+                if (arity > 3) {
+                    h = 31 * h + Objects.hashCode(d);
+                }
+            }
+        }
+        // the lowest bits select the segment, the next ones the slot in it
+        return h * 0x9E3779B9;
+    }
+
+    void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    /**
+     * Calculates the value for the given arguments. The arguments beyond the arity of the cache are {@code null}.
+     */
+    @FunctionalInterface
+    interface Loader<V> {
+        V load(Object a, Object b, Object c, Object d);
+    }
+
+    /**
+     * An open addressing table, with linear probing and backward shift deletion. Slot {@code i} is occupied if {@code nodes[i]} is not {@code null}; its arguments are {@code arguments[0..arity)[i]}.
+     */
+    private final class Table {
+        final int[] hashes;
+        final Object[][] arguments;
+        final Node<V>[] nodes;
+        final int mask;
+
+        @SuppressWarnings("unchecked")
+        Table(int length) {
+            hashes = new int[length];
+            arguments = new Object[arity][length];
+            nodes = (Node<V>[]) new Node<?>[length];
+            mask = length - 1;
+        }
+
+        int index(int h) {
+            return (h >>> 16 ^ h) >>> segmentBits & mask;
+        }
+
+        boolean matches(int slot, int h, Object a, Object b, Object c, Object d) {
+            if (hashes[slot] != h || ! Objects.equals(arguments[0][slot], a)) {
+                return false;
+            }
+            return (arity < 2 || Objects.equals(arguments[1][slot], b))
+                && (arity < 3 || Objects.equals(arguments[2][slot], c))
+                && (arity < 4 || Objects.equals(arguments[3][slot], d));
+        }
+
+        /**
+         * Also used without the lock, so never probes more than the length of the table.
+         */
+        Node<V> find(int h, Object a, Object b, Object c, Object d) {
+            int slot = index(h);
+            for (int i = 0; i <= mask; i++, slot = (slot + 1) & mask) {
+                Node<V> node = nodes[slot];
+                if (node == null) {
+                    return null;
+                }
+                if (matches(slot, h, a, b, c, d)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        void move(int from, int to) {
+            hashes[to] = hashes[from];
+            nodes[to] = nodes[from];
+            for (int j = 0; j < arity; j++) {
+                arguments[j][to] = arguments[j][from];
+            }
+        }
+    }
+
+    private final class Segment {
+        private static final int INITIAL_LENGTH = 16;
+        private static final int READ_BUFFER = 16;
+
+        final StampedLock lock = new StampedLock();
+        final int capacity;
+        final Policy<V> policy;
+        volatile Table table = new Table(INITIAL_LENGTH);
+        volatile int size;
+        final AtomicReferenceArray<Node<V>> reads = new AtomicReferenceArray<>(READ_BUFFER);
+        final AtomicInteger readCount = new AtomicInteger();
+
+        Segment(int capacity, Policy<V> policy) {
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        Node<V> node(int h, Object a, Object b, Object c, Object d, Loader<? extends V> loader) {
+            long stamp = lock.tryOptimisticRead();
+            Node<V> found = table.find(h, a, b, c, d);
+            if (! lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    found = table.find(h, a, b, c, d);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (found != null) {
+                hits.increment();
+                read(found);
+                return found;
+            }
+            stamp = lock.writeLock();
+            try {
+                drain();
+                Table t = table;
+                int slot = t.index(h);
+                for (; (found = t.nodes[slot]) != null; slot = (slot + 1) & t.mask) {
+                    if (t.matches(slot, h, a, b, c, d)) {
+                        policy.accessed(found);
+                        hits.increment();
+                        return found;
+                    }
+                }
+                Node<V> node = new Node<>(h, () -> loader.load(a, b, c, d));
+                put(t, slot, node, a, b, c, d);
+                policy.added(node);
+                misses.increment();
+                while (size > capacity) {
+                    // this may be the new node itself, if the policy does not admit it. It is calculated anyway, but not memoized.
+                    Node<V> victim = policy.victim();
+                    policy.removed(victim);
+                    delete(victim);
+                    evictions.increment();
+                }
+                if (size * 2 > t.nodes.length) {
+                    resize(t.nodes.length * 2);
+                }
+                return node;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Records a hit, to be applied to the policy later. If the buffer is full, the oldest hit is lost.
+         */
+        private void read(Node<V> node) {
+            int i = readCount.getAndIncrement() & (READ_BUFFER - 1);
+            reads.lazySet(i, node);
+            if (i == READ_BUFFER - 1) {
+                long stamp = lock.tryWriteLock();
+                if (stamp != 0) {
+                    try {
+                        drain();
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Applies the recorded hits to the policy. Only called with the write lock held.
+         */
+        private void drain() {
+            for (int i = 0; i < READ_BUFFER; i++) {
+                Node<V> node = reads.get(i);
+                if (node != null) {
+                    reads.lazySet(i, null);
+                    if (node.present) {
+                        policy.accessed(node);
+                    }
+                }
+            }
+        }
+
+        private void put(Table t, int slot, Node<V> node, Object a, Object b, Object c, Object d) {
+            t.hashes[slot] = node.hash;
+            Object[][] args = t.arguments;
+            args[0][slot] = a;
+            if (arity > 1) {
+                args[1][slot] = b;
+            }
+            if (arity > 2) {
+                args[2][slot] = c;
+            }
+            if (arity > 3) {
+                args[3][slot] = d;
+            }
+            t.nodes[slot] = node;
+            node.present = true;
+            size++;
+        }
+
+        private void resize(int length) {
+            Table old = table;
+            Table t = new Table(length);
+            for (int i = 0; i < old.nodes.length; i++) {
+                if (old.nodes[i] != null) {
+                    int slot = t.index(old.hashes[i]);
+                    while (t.nodes[slot] != null) {
+                        slot = (slot + 1) & t.mask;
+                    }
+                    t.hashes[slot] = old.hashes[i];
+                    t.nodes[slot] = old.nodes[i];
+                    for (int j = 0; j < arity; j++) {
+                        t.arguments[j][slot] = old.arguments[j][i];
+                    }
+                }
+            }
+            table = t;
+        }
+
+        /**
+         * Removes the slot of the given node, shifting back the entries after it, so that no probe sequence is broken.
+         * @return whether the node was present
+         */
+        private boolean delete(Node<V> node) {
+            if (! node.present) {
+                return false;
+            }
+            Table t = table;
+            int m = t.mask;
+            int slot = t.index(node.hash);
+            while (t.nodes[slot] != node) {
+                slot = (slot + 1) & m;
+            }
+            int free = slot;
+            for (int i = (free + 1) & m; t.nodes[i] != null; i = (i + 1) & m) {
+                int home = t.index(t.hashes[i]);
+                // move slot i to the free one, if its home is not cyclically in (free, i]
+                if (((i - home) & m) >= ((i - free) & m)) {
+                    t.move(i, free);
+                    free = i;
+                }
+            }
+            t.nodes[free] = null;
+            for (int j = 0; j < arity; j++) {
+                t.arguments[j][free] = null;
+            }
+            node.present = false;
+            size--;
+            return true;
+        }
+
+        void remove(Node<V> node) {
+            long stamp = lock.writeLock();
+            try {
+                if (delete(node)) {
+                    policy.removed(node);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void clear() {
+            long stamp = lock.writeLock();
+            try {
+                for (Node<V> node : table.nodes) {
+                    if (node != null) {
+                        node.present = false;
+                    }
+                }
+                table = new Table(INITIAL_LENGTH);
+                size = 0;
+                policy.clear();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * An entry of the cache. Its value is calculated on the first {@link #get()}.
+     */
+    static final class Node<V> extends Suppliers.MemoizeSupplier<V> {
+        final int hash;
+        /**
+         * Whether this node is in the table of its segment. Only changed with the write lock held.
+         */
+        boolean present;
+        /**
+         * The queue of this node, in {@link TinyLfuPolicy}
+         */
+        byte queue;
+        Node<V> prev;
+        Node<V> next;
+        /**
+         * The bucket of this node, in {@link LfuPolicy}
+         */
+        Bucket<V> bucket;
+
+        Node(int hash, Supplier<V> loader) {
+            super(loader);
+            this.hash = hash;
+        }
+
+        /**
+         * A sentinel of a circular list
+         */
+        Node() {
+            super(null);
+            this.hash = 0;
+            this.prev = this;
+            this.next = this;
+        }
+
+        void append(Node<V> sentinel) {
+            prev = sentinel.prev;
+            next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+
+        void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+
+    /**
+     * Decides which node to evict. Only called with the write lock of the segment held.
+     */
+    static abstract class Policy<V> {
+        abstract void added(Node<V> node);
+        abstract void accessed(Node<V> node);
+        abstract void removed(Node<V> node);
+        abstract Node<V> victim();
+        abstract void clear();
+    }
+
+    /**
+     * A list in order of access. The first node is the least recently used one.
+     */
+    static final class LruPolicy<V> extends Policy<V> {
+        private Node<V> sentinel = new Node<>();
+
+        @Override
+        void added(Node<V> node) {
+            node.append(sentinel);
+        }
+
+        @Override
+        void accessed(Node<V> node) {
+            if (node.next != sentinel) {
+                node.unlink();
+                node.append(sentinel);
+            }
+        }
+
+        @Override
+        void removed(Node<V> node) {
+            node.unlink();
+        }
+
+        @Override
+        Node<V> victim() {
+            return sentinel.next;
+        }
+
+        @Override
+        void clear() {
+            sentinel = new Node<>();
+        }
+    }
+
+    /**
+     * The nodes with the same frequency, in order of access.
+     */
+    static final class Bucket<V> {
+        long frequency;
+        final Node<V> nodes = new Node<>();
+        Bucket<V> prev = this;
+        Bucket<V> next = this;
+
+        Bucket(long frequency) {
+            this.frequency = frequency;
+        }
+
+        Bucket<V> insertAfter(Bucket<V> bucket) {
+            prev = bucket;
+            next = bucket.next;
+            bucket.next.prev = this;
+            bucket.next = this;
+            return this;
+        }
+
+        void removeIfEmpty() {
+            if (nodes.next == nodes) {
+                prev.next = next;
+                next.prev = prev;
+            }
+        }
+    }
+
+    /**
+     * Constant time LFU: a list of buckets in order of frequency, each containing the nodes with that frequency.
+     */
+    static final class LfuPolicy<V> extends Policy<V> {
+        private Bucket<V> buckets = new Bucket<>(0);
+
+        @Override
+        void added(Node<V> node) {
+            Bucket<V> first = buckets.next;
+            if (first == buckets || first.frequency != 1) {
+                first = new Bucket<V>(1).insertAfter(buckets);
+            }
+            node.bucket = first;
+            node.append(first.nodes);
+        }
+
+        @Override
+        void accessed(Node<V> node) {
+            Bucket<V> bucket = node.bucket;
+            Bucket<V> next = bucket.next;
+            if (next == buckets || next.frequency != bucket.frequency + 1) {
+                if (node.prev == bucket.nodes && node.next == bucket.nodes) {
+                    // the only node of its bucket, which can just move up, without allocating a new one
+                    bucket.frequency++;
+                    return;
+                }
+                next = new Bucket<V>(bucket.frequency + 1).insertAfter(bucket);
+            }
+            node.unlink();
+            node.bucket = next;
+            node.append(next.nodes);
+            bucket.removeIfEmpty();
+        }
+
+        @Override
+        void removed(Node<V> node) {
+            node.unlink();
+            node.bucket.removeIfEmpty();
+            node.bucket = null;
+        }
+
+        @Override
+        Node<V> victim() {
+            return buckets.next.nodes.next;
+        }
+
+        @Override
+        void clear() {
+            buckets = new Bucket<>(0);
+        }
+    }
+
+    /**
+     * A count-min sketch of the frequencies of hashes: four 4-bit counters per hash, of which the minimum is the estimate. After {@code 10 * capacity} increments all counters are halved, so that the frequencies reflect recent use.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0xB8A5A9F3, 0x6C8E9CF5, 0x2F9AB6E1};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            table = new long[Math.max(8, ceilingPowerOfTwo(capacity))];
+            sampleSize = 10 * Math.max(1, capacity);
+        }
+
+        int frequency(int hash) {
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int h = hash * SEEDS[i];
+                int shift = (h >>> 28) << 2;
+                frequency = Math.min(frequency, (int) ((table[index(h)] >>> shift) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int h = hash * SEEDS[i];
+                int index = index(h);
+                int shift = (h >>> 28) << 2;
+                if (((table[index] >>> shift) & 0xF) != 0xF) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        void clear() {
+            Arrays.fill(table, 0);
+            additions = 0;
+        }
+
+        private int index(int h) {
+            return (h ^ (h >>> 16)) & (table.length - 1);
+        }
+    }
+
+    /**
+     * W-TinyLFU. New nodes enter a small LRU window. When that overflows, its least recently used node is a candidate for the main space, which is a segmented LRU of a probation and a protected queue. If the cache is full, the candidate (the most recent node on probation) is only kept if the {@link FrequencySketch sketch} estimates it more popular than the least recently used node of probation, which is evicted instead. So, a burst of keys that are used only once cannot push out the popular ones.
+     */
+    static final class TinyLfuPolicy<V> extends Policy<V> {
+        private static final byte WINDOW = 0;
+        private static final byte PROBATION = 1;
+        private static final byte PROTECTED = 2;
+
+        private final FrequencySketch sketch;
+        private final int maxWindow;
+        private final int maxProtected;
+        private Node<V> window = new Node<>();
+        private Node<V> probation = new Node<>();
+        private Node<V> protectedNodes = new Node<>();
+        private int windowSize;
+        private int protectedSize;
+
+        TinyLfuPolicy(int capacity) {
+            sketch = new FrequencySketch(capacity);
+            maxWindow = Math.max(1, capacity / 100);
+            maxProtected = (capacity - maxWindow) * 8 / 10;
+        }
+
+        @Override
+        void added(Node<V> node) {
+            sketch.increment(node.hash);
+            node.queue = WINDOW;
+            node.append(window);
+            if (++windowSize > maxWindow) {
+                // the least recently used node of the window becomes the candidate, at the end of probation
+                Node<V> candidate = window.next;
+                candidate.unlink();
+                windowSize--;
+                candidate.queue = PROBATION;
+                candidate.append(probation);
+            }
+        }
+
+        @Override
+        void accessed(Node<V> node) {
+            sketch.increment(node.hash);
+            node.unlink();
+            switch (node.queue) {
+                case WINDOW:
+                    node.append(window);
+                    break;
+                case PROBATION:
+                    node.queue = PROTECTED;
+                    node.append(protectedNodes);
+                    protectedSize++;
+                    while (protectedSize > maxProtected) {
+                        Node<V> demoted = protectedNodes.next;
+                        demoted.unlink();
+                        demoted.queue = PROBATION;
+                        demoted.append(probation);
+                        protectedSize--;
+                    }
+                    break;
+                default:
+                    node.append(protectedNodes);
+            }
+        }
+
+        @Override
+        void removed(Node<V> node) {
+            node.unlink();
+            if (node.queue == WINDOW) {
+                windowSize--;
+            } else if (node.queue == PROTECTED) {
+                protectedSize--;
+            }
+        }
+
+        @Override
+        Node<V> victim() {
+            if (probation.next == probation) {
+                return protectedNodes.next != protectedNodes ? protectedNodes.next : window.next;
+            }
+            Node<V> candidate = probation.prev;
+            Node<V> victim = probation.next;
+            if (victim == candidate) {
+                if (protectedNodes.next == protectedNodes) {
+                    return candidate;
+                }
+                victim = protectedNodes.next;
+            }
+            return sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate;
+        }
+
+        @Override
+        void clear() {
+            sketch.clear();
+            window = new Node<>();
+            probation = new Node<>();
+            protectedNodes = new Node<>();
+            windowSize = 0;
+            protectedSize = 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.meeuw.functional;
+
+/**
+ * A snapshot of the statistics of a cache of memoized results.
+ *
+ * @since 1.18
+ * @see Memoized#statistics()
+ */
+public final class CacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int size;
+
+    CacheStatistics(long hitCount, long missCount, long evictionCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of calls for which the result was memoized already
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of calls for which the result had to be calculated
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of results that were dropped because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of results currently memoized
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the fraction of calls that were hits, or {@code 1} if there were no calls
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 1.0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return "hits: " + hitCount + ", misses: " + missCount + ", evictions: " + evictionCount + ", size: " + size;
+    }
+}
@@ -0,0 +1,49 @@
+package org.meeuw.functional;
+
+import java.io.Serializable;
+
+/**
+ * Converts values to bytes and back, for caches that store their keys or values outside the java heap, like {@link PersistentStore}.
+ * <p>
+ * Decoding the encoded bytes of a value must result in an equal value.
+ *
+ * @param <T> the type of the values
+ * @since 1.18
+ */
+public interface Codec<T> {
+
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+
+    /**
+     * @return a codec for {@link String}s, as UTF-8. Always the same instance.
+     */
+    static Codec<String> utf8() {
+        return Codecs.UTF8;
+    }
+
+    /**
+     * @return a codec for {@link Integer}s, as 4 bytes. Always the same instance.
+     */
+    static Codec<Integer> ofInteger() {
+        return Codecs.INTEGER;
+    }
+
+    /**
+     * @return a codec for {@link Long}s, as 8 bytes. Always the same instance.
+     */
+    static Codec<Long> ofLong() {
+        return Codecs.LONG;
+    }
+
+    /**
+     * A codec using java serialization. Simple, but slow and verbose, so it's better to implement a dedicated codec for values that are stored a lot.
+     * @param <T> the type of the values
+     * @return a codec for serializable values. Always the same instance.
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Serializable> Codec<T> serializable() {
+        return (Codec<T>) Codecs.SERIALIZABLE;
+    }
+}
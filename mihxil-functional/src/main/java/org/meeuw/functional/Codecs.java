@@ -0,0 +1,97 @@
+package org.meeuw.functional;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The stock {@link Codec}s. They are singletons, so that functions memoized with them are {@link Object#equals(Object) equal} if they wrap equal functions.
+ *
+ * @since 1.18
+ */
+final class Codecs {
+
+    private Codecs() {
+        // no instances
+    }
+
+    static final Codec<String> UTF8 = new Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return "utf8";
+        }
+    };
+
+    static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public byte[] encode(Integer value) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+        }
+
+        @Override
+        public Integer decode(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getInt();
+        }
+
+        @Override
+        public String toString() {
+            return "integer";
+        }
+    };
+
+    static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public byte[] encode(Long value) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+        }
+
+        @Override
+        public Long decode(byte[] bytes) {
+            return ByteBuffer.wrap(bytes).getLong();
+        }
+
+        @Override
+        public String toString() {
+            return "long";
+        }
+    };
+
+    static final Codec<Serializable> SERIALIZABLE = new Codec<Serializable>() {
+        @Override
+        public byte[] encode(Serializable value) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public Serializable decode(byte[] bytes) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (Serializable) in.readObject();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "serializable";
+        }
+    };
+}
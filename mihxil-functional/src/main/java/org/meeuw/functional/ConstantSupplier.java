@@ -0,0 +1,89 @@
+package org.meeuw.functional;
+
+import java.lang.invoke.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the value of a supplier, and then publishes it as a constant {@link MethodHandle}, via a {@link MutableCallSite}.
+ * <p>
+ * Before the first evaluation, the call site links to the evaluation. After that, it is relinked to {@link MethodHandles#constant(Class, Object)} of the value. When the {@link #getInvoker() invoker} is stored in a {@code static final} field, the JIT can then treat the value as a true constant, and e.g. fold away branches on it, without even the volatile read of {@link Suppliers#memoize(Supplier)}:
+ * <pre>{@code
+ * static final MethodHandle FEATURES = Suppliers.constant(Features::load).getInvoker();
+ *
+ * if (((Features) (Object) FEATURES.invokeExact()).isEnabled("x")) {
+ *   ...
+ * }
+ * }</pre>
+ * {@link #get()} itself invokes the same call site, but through an instance field, so it can only be folded if the {@code ConstantSupplier} itself is a constant to the JIT.
+ *
+ * @param <T> the type of the value supplied
+ * @since 1.18
+ * @see Suppliers#constant(Supplier)
+ */
+public final class ConstantSupplier<T> extends Suppliers.SupplierWrapper<T, Supplier<T>> {
+
+    private static final MethodHandle EVALUATE;
+    static {
+        try {
+            EVALUATE = MethodHandles.lookup().findVirtual(ConstantSupplier.class, "evaluate", MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final MutableCallSite callSite = new MutableCallSite(MethodType.methodType(Object.class));
+    private final MethodHandle invoker = callSite.dynamicInvoker();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Object value = Suppliers.MemoizeSupplier.UNSET;
+
+    ConstantSupplier(Supplier<T> wrapped) {
+        super(wrapped, "constant");
+        callSite.setTarget(EVALUATE.bindTo(this));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get() {
+        try {
+            return (T) (Object) invoker.invokeExact();
+        } catch (Throwable t) {
+            return Sneaky.sneakyThrow(t);
+        }
+    }
+
+    /**
+     * @return A method handle of type {@code ()Object}, that supplies the value. Store it in a {@code static final} field to make the value constant for the JIT.
+     */
+    public MethodHandle getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * @return whether the value was evaluated already
+     */
+    public boolean isEvaluated() {
+        return value != Suppliers.MemoizeSupplier.UNSET;
+    }
+
+    private Object evaluate() {
+        Object v = value;
+        if (v != Suppliers.MemoizeSupplier.UNSET) {
+            // other threads may not have seen the relinked call site yet
+            return v;
+        }
+        lock.lock();
+        try {
+            v = value;
+            if (v == Suppliers.MemoizeSupplier.UNSET) {
+                v = wrapped.get();
+                value = v;
+                callSite.setTarget(MethodHandles.constant(Object.class, v));
+                MutableCallSite.syncAll(new MutableCallSite[] {callSite});
+            }
+            return v;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.meeuw.functional;
+
+/**
+ * How a bounded cache of memoized results chooses which entry to drop when it is full.
+ *
+ * @since 1.18
+ * @see Functions#memoize(java.util.function.Function, int, Eviction)
+ */
+public enum Eviction {
+    /**
+     * Drops the least recently used entry.
+     */
+    LRU,
+    /**
+     * Drops the least frequently used entry, and of those the least recently used one. Frequencies are counted since an entry was added, so entries that were popular once may stay long after they are not used anymore.
+     */
+    LFU,
+    /**
+     * Window TinyLFU. New entries enter a small LRU window, and are only admitted to the main, segmented LRU space if they are estimated to be used more often than the entry they would replace. Frequencies are estimated with a compact sketch, which ages, so this copes with both skewed popularity and one-off scans.
+     */
+    TINY_LFU
+}
@@ -406,6 +406,446 @@ public final class Functions {
     }
 
 
+    /**
+     * The number of results memoized by default by the {@code memoize} methods.
+     * @since 1.18
+     */
+    public static final int DEFAULT_MEMOIZE_SIZE = 1024;
+
+    /**
+     * Memoizes the results of a {@link Function}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoize(Function, int, Eviction)
+     */
+    public static <A, R> Function<A, R> memoize(Function<A, R> function) {
+        return memoize(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link Function}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, R> Function<A, R> memoize(Function<A, R> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of a {@link BiFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoize(BiFunction, int, Eviction)
+     */
+    public static <A, B, R> BiFunction<A, B, R> memoize(BiFunction<A, B, R> function) {
+        return memoize(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link BiFunction}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, B, R> BiFunction<A, B, R> memoize(BiFunction<A, B, R> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedBiFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of a {@link TriFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoize(TriFunction, int, Eviction)
+     */
+    public static <A, B, C, R> TriFunction<A, B, C, R> memoize(TriFunction<A, B, C, R> function) {
+        return memoize(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link TriFunction}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, B, C, R> TriFunction<A, B, C, R> memoize(TriFunction<A, B, C, R> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedTriFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of a {@link QuadriFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <D> the type of the fourth argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoize(QuadriFunction, int, Eviction)
+     */
+    public static <A, B, C, D, R> QuadriFunction<A, B, C, D, R> memoize(QuadriFunction<A, B, C, D, R> function) {
+        return memoize(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link QuadriFunction}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <D> the type of the fourth argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, B, C, D, R> QuadriFunction<A, B, C, D, R> memoize(QuadriFunction<A, B, C, D, R> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedQuadriFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeThrowing(ThrowingFunction, int, Eviction)
+     */
+    public static <A, R, E extends Exception> ThrowingFunction<A, R, E> memoizeThrowing(ThrowingFunction<A, R, E> function) {
+        return memoizeThrowing(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingFunction}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, R, E extends Exception> ThrowingFunction<A, R, E> memoizeThrowing(ThrowingFunction<A, R, E> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedThrowingFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingBiFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeThrowing(ThrowingBiFunction, int, Eviction)
+     */
+    public static <A, B, R, E extends Exception> ThrowingBiFunction<A, B, R, E> memoizeThrowing(ThrowingBiFunction<A, B, R, E> function) {
+        return memoizeThrowing(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingBiFunction}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, B, R, E extends Exception> ThrowingBiFunction<A, B, R, E> memoizeThrowing(ThrowingBiFunction<A, B, R, E> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedThrowingBiFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingTriFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeThrowing(ThrowingTriFunction, int, Eviction)
+     */
+    public static <A, B, C, R, E extends Exception> ThrowingTriFunction<A, B, C, R, E> memoizeThrowing(ThrowingTriFunction<A, B, C, R, E> function) {
+        return memoizeThrowing(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingTriFunction}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, B, C, R, E extends Exception> ThrowingTriFunction<A, B, C, R, E> memoizeThrowing(ThrowingTriFunction<A, B, C, R, E> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedThrowingTriFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingQuadriFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results, evicting the least recently used ones.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <D> the type of the fourth argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeThrowing(ThrowingQuadriFunction, int, Eviction)
+     */
+    public static <A, B, C, D, R, E extends Exception> ThrowingQuadriFunction<A, B, C, D, R, E> memoizeThrowing(ThrowingQuadriFunction<A, B, C, D, R, E> function) {
+        return memoizeThrowing(function, DEFAULT_MEMOIZE_SIZE, Eviction.LRU);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingQuadriFunction}, in a bounded concurrent cache. Calculations happen outside the locks of the cache, so a slow calculation only blocks concurrent calls with the same arguments.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param eviction which results to drop when the cache is full
+     * @param <A> the type of the first argument of the function
+     * @param <B> the type of the second argument of the function
+     * @param <C> the type of the third argument of the function
+     * @param <D> the type of the fourth argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw. Failures are not memoized.
+     * @return a new function, which calls the given function at most once for the same arguments, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, B, C, D, R, E extends Exception> ThrowingQuadriFunction<A, B, C, D, R, E> memoizeThrowing(ThrowingQuadriFunction<A, B, C, D, R, E> function, int maxSize, Eviction eviction) {
+        return new MemoizedFunctions.MemoizedThrowingQuadriFunction<>(function, maxSize, eviction);
+    }
+
+    /**
+     * Memoizes the results of an {@link IntFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results.
+     *
+     * @param function the function to memoize
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same argument, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeInt(IntFunction, int)
+     */
+    public static <R> IntFunction<R> memoizeInt(IntFunction<R> function) {
+        return memoizeInt(function, DEFAULT_MEMOIZE_SIZE);
+    }
+
+    /**
+     * Memoizes the results of an {@link IntFunction}, without boxing the arguments. The arguments are stored in primitive arrays of a bounded concurrent cache, from which the least recently used results are evicted approximately (CLOCK). Calculations happen outside the locks of the cache, so concurrent calls with the same argument may call the function more than once.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <R> IntFunction<R> memoizeInt(IntFunction<R> function, int maxSize) {
+        return new MemoizedFunctions.MemoizedIntFunction<>(function, maxSize);
+    }
+
+    /**
+     * Memoizes the results of a {@link LongFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results.
+     *
+     * @param function the function to memoize
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeLong(LongFunction, int)
+     */
+    public static <R> LongFunction<R> memoizeLong(LongFunction<R> function) {
+        return memoizeLong(function, DEFAULT_MEMOIZE_SIZE);
+    }
+
+    /**
+     * Memoizes the results of a {@link LongFunction}, without boxing the arguments. See {@link #memoizeInt(IntFunction, int)}.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <R> LongFunction<R> memoizeLong(LongFunction<R> function, int maxSize) {
+        return new MemoizedFunctions.MemoizedLongFunction<>(function, maxSize);
+    }
+
+    /**
+     * Memoizes the results of a {@link ToIntFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the argument of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeToInt(ToIntFunction, int)
+     */
+    public static <A> ToIntFunction<A> memoizeToInt(ToIntFunction<A> function) {
+        return memoizeToInt(function, DEFAULT_MEMOIZE_SIZE);
+    }
+
+    /**
+     * Memoizes the results of a {@link ToIntFunction}, without boxing the results. The results are stored in primitive arrays of a bounded concurrent cache, from which the least recently used results are evicted approximately (CLOCK). Calculations happen outside the locks of the cache, so concurrent calls with the same argument may call the function more than once.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param <A> the type of the argument of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A> ToIntFunction<A> memoizeToInt(ToIntFunction<A> function, int maxSize) {
+        return new MemoizedFunctions.MemoizedToIntFunction<>(function, maxSize);
+    }
+
+    /**
+     * Memoizes the results of a {@link ToLongFunction}, in a bounded cache of {@value #DEFAULT_MEMOIZE_SIZE} results.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the argument of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     * @see #memoizeToLong(ToLongFunction, int)
+     */
+    public static <A> ToLongFunction<A> memoizeToLong(ToLongFunction<A> function) {
+        return memoizeToLong(function, DEFAULT_MEMOIZE_SIZE);
+    }
+
+    /**
+     * Memoizes the results of a {@link ToLongFunction}, without boxing the results. See {@link #memoizeToInt(ToIntFunction, int)}.
+     *
+     * @param function the function to memoize
+     * @param maxSize the maximal number of results to memoize
+     * @param <A> the type of the argument of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A> ToLongFunction<A> memoizeToLong(ToLongFunction<A> function, int maxSize) {
+        return new MemoizedFunctions.MemoizedToLongFunction<>(function, maxSize);
+    }
+
+    /**
+     * Memoizes the results of a {@link Function} for as long as its arguments live. Arguments are compared by identity, and only weakly referenced, so this is suited to derive data from (mutable) objects, without calling their {@code equals} or {@code hashCode}, and without keeping them alive. Once an argument is garbage collected, its result is dropped, during one of the next calls.
+     * <p>
+     * The results are strongly referenced, so a result should not refer to its argument.
+     *
+     * @param function the function to memoize
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function at most once for the same argument object. It implements {@link Memoized}; its eviction count is the number of results dropped because their argument was collected.
+     * @since 1.18
+     */
+    public static <A, R> Function<A, R> memoizeWeakIdentity(Function<A, R> function) {
+        return new MemoizedFunctions.MemoizedWeakIdentityFunction<>(function);
+    }
+
+    /**
+     * Memoizes the results of a {@link Function} in a {@link PersistentStore}, so they survive a restart of the JVM. Results are read from the memory mapped file of the store, and decoded, on every call, so for often used results this can be combined with an in memory cache: {@code memoize(memoizePersistent(function, store))}.
+     * <p>
+     * Results are calculated without holding a lock, so concurrent calls for the same argument may call the function more than once. The first stored result wins.
+     *
+     * @param function the function to memoize
+     * @param store where to store the results. It is not closed by the returned function.
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function only for arguments that are not in the store yet. It implements {@link Memoized}; invalidating it clears the store.
+     * @since 1.18
+     */
+    public static <A, R> Function<A, R> memoizePersistent(Function<A, R> function, PersistentStore<A, R> store) {
+        return new MemoizedFunctions.MemoizedPersistentFunction<>(function, store);
+    }
+
+    /**
+     * Memoizes the results of a {@link ThrowingFunction} in a {@link PersistentStore}, so they survive a restart of the JVM. Failures are not stored.
+     *
+     * @param function the function to memoize
+     * @param store where to store the results. It is not closed by the returned function.
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @param <E> the type of the exception the function may throw
+     * @return a new function, which calls the given function only for arguments that are not in the store yet. It implements {@link Memoized}; invalidating it clears the store.
+     * @since 1.18
+     * @see #memoizePersistent(Function, PersistentStore)
+     */
+    public static <A, R, E extends Exception> ThrowingFunction<A, R, E> memoizePersistentThrowing(ThrowingFunction<A, R, E> function, PersistentStore<A, R> store) {
+        return new MemoizedFunctions.MemoizedPersistentThrowingFunction<>(function, store);
+    }
+
+    /**
+     * Memoizes the results of a {@link Function} outside the java heap, so that many or large results do not burden the garbage collector. Arguments and results are {@link Codec encoded} into direct byte buffers, and results are decoded again on every hit, so this pays off if calculating a result is considerably more expensive than decoding it.
+     * <p>
+     * The least recently used results are evicted if the cache would exceed its size. Results are calculated without holding a lock, so concurrent calls for the same argument may call the function more than once.
+     *
+     * @param function the function to memoize
+     * @param keyCodec how to encode the arguments. Arguments are equal if their encodings are.
+     * @param valueCodec how to encode and decode the results
+     * @param maxBytes the maximal number of bytes of memory to use. It is allocated in slabs of at most 1MB, which are divided in chunks of a power of two bytes.
+     * @param <A> the type of the argument of the function
+     * @param <R> the type of the result of the function
+     * @return a new function, which calls the given function once per argument, except for concurrent first calls, as long as the result remains in the cache. It implements {@link Memoized}.
+     * @since 1.18
+     */
+    public static <A, R> Function<A, R> memoizeOffHeap(Function<A, R> function, Codec<A> keyCodec, Codec<R> valueCodec, long maxBytes) {
+        return new MemoizedFunctions.MemoizedOffHeapFunction<>(function, keyCodec, valueCodec, maxBytes);
+    }
+
+
     @SuppressWarnings("rawtypes")
     private static final UnaryOperator IDENTITY = new UnaryOperator() {
         @Override
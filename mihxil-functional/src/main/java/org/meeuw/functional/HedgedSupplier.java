@@ -0,0 +1,143 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Supplies the first result of a number of equivalent sources, e.g. replicas.
+ * <p>
+ * On every {@link #get()}, the first source is called. If it did not answer within the hedge delay, the next one is called too, and so on. If a source fails, the next one is called immediately. The first successful result is returned, and the other calls are cancelled. Results that arrive too late are closed if they are {@link AutoCloseable}.
+ * <p>
+ * If all sources fail, the first exception is thrown, with the other ones added as suppressed.
+ *
+ * @param <T> the type of the value supplied
+ * @param <E> the type of the exception that the sources may throw
+ * @since 1.18
+ * @see Suppliers#hedged(List, Duration, Executor)
+ */
+class HedgedSupplier<T, E extends Exception> extends Suppliers.ThrowingSupplierWrapper<T, List<ThrowingSupplier<T, E>>, E> {
+
+    private final long hedgeDelayNanos;
+    private final Executor executor;
+
+    HedgedSupplier(List<ThrowingSupplier<T, E>> sources, Duration hedgeDelay, Executor executor) {
+        super(new ArrayList<>(sources), "hedged " + hedgeDelay);
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No sources");
+        }
+        this.hedgeDelayNanos = hedgeDelay.toNanos();
+        this.executor = executor;
+    }
+
+    @Override
+    public T getThrows() throws E {
+        final int count = wrapped.size();
+        final BlockingQueue<Outcome<T>> outcomes = new ArrayBlockingQueue<>(count);
+        final AtomicBoolean decided = new AtomicBoolean(false);
+        final List<Future<?>> calls = new ArrayList<>(count);
+        Throwable failure = null;
+        int pending = 0;
+        try {
+            while (true) {
+                Outcome<T> outcome = null;
+                if (pending > 0) {
+                    outcome = calls.size() < count ? outcomes.poll(hedgeDelayNanos, TimeUnit.NANOSECONDS) : outcomes.take();
+                }
+                if (outcome == null) {
+                    calls.add(call(wrapped.get(calls.size()), outcomes, decided));
+                    pending++;
+                    continue;
+                }
+                pending--;
+                if (outcome.failure == null) {
+                    return outcome.value;
+                }
+                if (failure == null) {
+                    failure = outcome.failure;
+                } else {
+                    failure.addSuppressed(outcome.failure);
+                }
+                if (pending == 0 && calls.size() == count) {
+                    return Sneaky.sneakyThrow(failure);
+                }
+                if (calls.size() < count) {
+                    // don't wait for the hedge delay
+                    calls.add(call(wrapped.get(calls.size()), outcomes, decided));
+                    pending++;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return Sneaky.sneakyThrow(ie);
+        } finally {
+            decided.set(true);
+            for (Future<?> call : calls) {
+                call.cancel(true);
+            }
+        }
+    }
+
+    private Future<?> call(ThrowingSupplier<T, E> source, BlockingQueue<Outcome<T>> outcomes, AtomicBoolean decided) {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            Outcome<T> outcome;
+            try {
+                T value = source.getThrows();
+                if (! decided.compareAndSet(false, true)) {
+                    // lost
+                    close(value);
+                    return null;
+                }
+                outcome = new Outcome<>(value, null);
+            } catch (Throwable t) {
+                outcome = new Outcome<>(null, t);
+            }
+            outcomes.add(outcome);
+            return null;
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ree) {
+            outcomes.add(new Outcome<>(null, ree));
+        }
+        return task;
+    }
+
+    /**
+     * Two instances are equal if they wrap equal sources, with the same hedge delay and executor.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (! super.equals(o)) return false;
+        HedgedSupplier<?, ?> that = (HedgedSupplier<?, ?>) o;
+        return hedgeDelayNanos == that.hedgeDelayNanos && Objects.equals(executor, that.executor);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Long.hashCode(hedgeDelayNanos);
+    }
+
+    private static void close(Object value) {
+        if (value instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) value).close();
+            } catch (Exception e) {
+                Suppliers.uncaught(e);
+            }
+        }
+    }
+
+    private static final class Outcome<T> {
+        final T value;
+        final Throwable failure;
+
+        Outcome(T value, Throwable failure) {
+            this.value = value;
+            this.failure = failure;
+        }
+    }
+}
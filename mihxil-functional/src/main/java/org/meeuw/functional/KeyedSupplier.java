@@ -0,0 +1,206 @@
+package org.meeuw.functional;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A map of lazily evaluated, memoized suppliers, one per key. The value for a key is loaded at most once (until it is evicted or invalidated), also if it is requested concurrently.
+ * <p>
+ * Contrary to {@link ConcurrentHashMap#computeIfAbsent(Object, Function)}, the loader is not called while holding a lock of the map, so a slow load does not block other keys. Only concurrent requests for the same key wait for each other.
+ * <p>
+ * The number of keys is bounded. If it is exceeded, keys are evicted using the CLOCK (second chance) algorithm: a key that was used since the clock hand passed it the last time gets another chance. Invalidated keys are only marked removed, and are skipped and dropped by the clock hand, or in bulk once there are more of them than the maximal size.
+ *
+ * @param <K> the type of the keys
+ * @param <T> the type of the values
+ * @since 1.18
+ * @see Suppliers#keyed(Function)
+ * @see Suppliers#keyed(Function, int)
+ */
+public final class KeyedSupplier<K, T> implements Function<K, T>, Unwrappable<Function<K, T>> {
+
+    private final Function<K, T> loader;
+    private final int maxSize;
+    private final ConcurrentHashMap<K, Entry<K, T>> entries = new ConcurrentHashMap<>();
+    /**
+     * The clock. Its head is the hand.
+     */
+    private final Queue<Entry<K, T>> clock = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /**
+     * The number of removed entries that are still on the clock. Approximate, since an entry may be skipped by the hand before it is counted.
+     */
+    private final AtomicInteger removedCount = new AtomicInteger();
+    private final LongAdder evictionCount = new LongAdder();
+
+    KeyedSupplier(Function<K, T> loader, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.loader = Objects.requireNonNull(loader);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key a key
+     * @return the value for the given key, loading it if it is not memoized
+     */
+    @Override
+    public T apply(K key) {
+        Entry<K, T> entry = entries.get(key);
+        if (entry == null) {
+            Entry<K, T> created = new Entry<>(key, loader);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+                clock.add(created);
+                if (entries.size() > maxSize) {
+                    evict();
+                }
+            }
+        } else if (! entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.get();
+    }
+
+    /**
+     * @param key a key
+     * @return a supplier for the value of the given key. It is just a view on this map, so it reflects evictions and invalidations.
+     */
+    public UnwrappableSupplier<T, Function<K, T>> supplier(K key) {
+        return new Suppliers.SupplierWrapper<T, Function<K, T>>(this, "key " + key) {
+            @Override
+            public T get() {
+                return apply(key);
+            }
+        };
+    }
+
+    /**
+     * Drops the value for a key, so it will be loaded again on the next request.
+     * @param key a key
+     * @return whether a value (or a load in progress) was dropped
+     */
+    public boolean invalidate(K key) {
+        Entry<K, T> removed = entries.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        removed(removed);
+        return true;
+    }
+
+    /**
+     * Drops all values.
+     */
+    public void invalidateAll() {
+        // not entries.clear(), since an entry that is inserted concurrently must stay on the clock if it stays in the map
+        entries.forEach((key, entry) -> {
+            if (entries.remove(key, entry)) {
+                removed(entry);
+            }
+        });
+    }
+
+    /**
+     * Marks an entry that was removed from the map, so the clock hand skips it. If there are many, they are removed from the clock at once, so that it doesn't grow if keys are invalidated often.
+     */
+    private void removed(Entry<K, T> entry) {
+        entry.removed = true;
+        if (removedCount.incrementAndGet() > maxSize && evictionLock.tryLock()) {
+            try {
+                int purged = 0;
+                for (Iterator<Entry<K, T>> i = clock.iterator(); i.hasNext(); ) {
+                    if (i.next().removed) {
+                        i.remove();
+                        purged++;
+                    }
+                }
+                removedCount.addAndGet(-purged);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return whether there is a value memoized for the given key
+     */
+    public boolean isEvaluated(K key) {
+        Entry<K, T> entry = entries.get(key);
+        return entry != null && entry.isEvaluated();
+    }
+
+    /**
+     * @return the number of keys present
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of entries on the clock, including removed ones that were not dropped yet
+     */
+    int clockSize() {
+        return clock.size();
+    }
+
+    /**
+     * @return the number of keys that were evicted because the maximal size was exceeded
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void evict() {
+        evictionLock.lock();
+        try {
+            Entry<K, T> hand;
+            while (entries.size() > maxSize && (hand = clock.poll()) != null) {
+                if (hand.removed) {
+                    removedCount.decrementAndGet();
+                    continue;
+                }
+                if (hand.referenced) {
+                    hand.referenced = false;
+                    clock.add(hand);
+                } else if (entries.remove(hand.key, hand)) {
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * The loader
+     */
+    @Override
+    public Function<K, T> unwrap() {
+        return loader;
+    }
+
+    @Override
+    public String toString() {
+        return loader + "(keyed " + maxSize + ")";
+    }
+
+    private static final class Entry<K, T> extends Suppliers.MemoizeSupplier<T> {
+        final K key;
+        volatile boolean referenced = false;
+        volatile boolean removed = false;
+
+        Entry(K key, Function<K, T> loader) {
+            super(() -> loader.apply(key));
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.meeuw.functional;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in detection of closeable suppliers that became unreachable without being closed.
+ * <p>
+ * When enabled, every closeable supplier created by {@link Suppliers#closeable(Supplier, ThrowAnyConsumer)}, {@link Suppliers#closeable(Supplier)} or {@link Suppliers#memoize(CloseableSupplier)} is registered with a {@link PhantomReference}. A daemon thread reports the ones that are garbage collected without having been closed as a {@link Leak}, and optionally closes them.
+ * <p>
+ * Recording where a supplier was created requires a stack trace, which is relatively expensive. So, this is only done for a sample of them. The other leaks are reported without a stack trace.
+ * <pre>{@code
+ * LeakDetector.enable(0.01, true);
+ * }</pre>
+ * (On Java 9 and later, this would be done using a {@code java.lang.ref.Cleaner}. This implementation is what that does internally.)
+ *
+ * @since 1.18
+ */
+public final class LeakDetector {
+
+    private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+    private static final Set<Tracked> TRACKED = ConcurrentHashMap.newKeySet();
+    private static final LongAdder LEAKS = new LongAdder();
+
+    private static volatile Config config;
+    private static Thread thread;
+
+    private LeakDetector() {
+        // no instances
+    }
+
+    /**
+     * Enables leak detection, reporting the leaks to the uncaught exception handler of the detecting thread (which normally prints them to {@code System.err}).
+     *
+     * @param sampleRate the fraction (0 to 1) of suppliers for which the stack trace of their creation is recorded
+     * @param autoClose whether leaked suppliers must be closed
+     */
+    public static void enable(double sampleRate, boolean autoClose) {
+        enable(sampleRate, autoClose, Suppliers::uncaught);
+    }
+
+    /**
+     * Enables leak detection.
+     *
+     * @param sampleRate the fraction (0 to 1) of suppliers for which the stack trace of their creation is recorded
+     * @param autoClose whether leaked suppliers must be closed
+     * @param reporter what to do with detected leaks. It is called on the detecting thread.
+     */
+    public static synchronized void enable(double sampleRate, boolean autoClose, Consumer<? super Leak> reporter) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("The sample rate must be between 0 and 1: " + sampleRate);
+        }
+        config = new Config(sampleRate, autoClose, reporter);
+        if (thread == null) {
+            thread = new Thread(LeakDetector::detect, "leak detector");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Disables leak detection for suppliers that are created from now on. Suppliers that are already registered are still reported, with the configuration that was current when they were created.
+     */
+    public static void disable() {
+        config = null;
+    }
+
+    /**
+     * @return whether leak detection is enabled
+     */
+    public static boolean isEnabled() {
+        return config != null;
+    }
+
+    /**
+     * @return the number of leaks detected so far
+     */
+    public static long getLeakCount() {
+        return LEAKS.sum();
+    }
+
+    /**
+     * Registers an object that must be closed.
+     * @param referent the object to watch
+     * @param wrapped the object that must be closed
+     * @param closer how to close it. This must not refer to {@code referent}, otherwise it will never be collected.
+     * @return a registration, which must be {@link Tracked#close() closed} when the referent is closed, or {@code null} if leak detection is not enabled
+     */
+    static <W> Tracked track(Object referent, W wrapped, ThrowAnyConsumer<? super W> closer) {
+        Config c = config;
+        if (c == null) {
+            return null;
+        }
+        Throwable site = c.sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < c.sampleRate ? new Throwable() : null;
+        Tracked tracked = new Tracked(referent, c, wrapped, () -> closer.acceptThrows(wrapped), site);
+        TRACKED.add(tracked);
+        return tracked;
+    }
+
+    private static void detect() {
+        while (true) {
+            try {
+                Tracked tracked = (Tracked) QUEUE.remove();
+                if (TRACKED.remove(tracked) && ! tracked.closed) {
+                    LEAKS.increment();
+                    tracked.leaked();
+                }
+            } catch (InterruptedException ie) {
+                // daemon thread, just continue
+            } catch (RuntimeException e) {
+                Suppliers.uncaught(e);
+            }
+        }
+    }
+
+    private static final class Config {
+        final double sampleRate;
+        final boolean autoClose;
+        final Consumer<? super Leak> reporter;
+
+        Config(double sampleRate, boolean autoClose, Consumer<? super Leak> reporter) {
+            this.sampleRate = sampleRate;
+            this.autoClose = autoClose;
+            this.reporter = reporter;
+        }
+    }
+
+    /**
+     * The registration of a closeable supplier
+     */
+    static final class Tracked extends PhantomReference<Object> {
+        private final Config config;
+        private final Object wrapped;
+        private final AutoCloseable closer;
+        private final Throwable site;
+        private volatile boolean closed = false;
+
+        Tracked(Object referent, Config config, Object wrapped, AutoCloseable closer, Throwable site) {
+            super(referent, QUEUE);
+            this.config = config;
+            this.wrapped = wrapped;
+            this.closer = closer;
+            this.site = site;
+        }
+
+        /**
+         * To be called when the watched object was closed.
+         */
+        void close() {
+            closed = true;
+            TRACKED.remove(this);
+            clear();
+        }
+
+        private void leaked() {
+            Leak leak = new Leak(wrapped + " was not closed" + (config.autoClose ? ", closing it now" : ""), site);
+            if (config.autoClose) {
+                try {
+                    closer.close();
+                } catch (Exception e) {
+                    leak.addSuppressed(e);
+                }
+            }
+            config.reporter.accept(leak);
+        }
+    }
+
+    /**
+     * Reports a closeable supplier that was not closed. If its creation was sampled, its stack trace is the one of the creation.
+     */
+    public static final class Leak extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final boolean sampled;
+
+        Leak(String message, Throwable site) {
+            super(message, null, true, site != null);
+            this.sampled = site != null;
+            if (site != null) {
+                setStackTrace(site.getStackTrace());
+            }
+        }
+
+        /**
+         * @return whether the stack trace of this leak is the one of the creation of the supplier
+         */
+        public boolean isSampled() {
+            return sampled;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.meeuw.functional;
+
+/**
+ * Implemented by the functions created by the {@code memoize} methods of {@link Functions}, to give access to their cache.
+ *
+ * @since 1.18
+ */
+public interface Memoized {
+
+    /**
+     * @return a snapshot of the statistics of the cache
+     */
+    CacheStatistics statistics();
+
+    /**
+     * Drops all memoized results.
+     */
+    void invalidateAll();
+}
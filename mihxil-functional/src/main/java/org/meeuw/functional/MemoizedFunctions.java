@@ -0,0 +1,469 @@
+package org.meeuw.functional;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.*;
+
+/**
+ * The implementations of the {@code memoize} methods of {@link Functions}. They are backed by a {@link BoundedCache} (or a {@link PrimitiveCache}, a {@link WeakIdentityCache}, a {@link PersistentStore} or an {@link OffHeapCache}), and are equal if they wrap equal functions, with the same bound and eviction.
+ *
+ * @since 1.18
+ */
+final class MemoizedFunctions {
+
+    private MemoizedFunctions() {
+        // no instances
+    }
+
+    private static Object value(int maxSize, Eviction eviction) {
+        return Arrays.asList(maxSize, eviction);
+    }
+
+    private static String reason(int maxSize, Eviction eviction) {
+        return "memoize " + maxSize + " " + eviction;
+    }
+
+    static final class MemoizedFunction<A, R> extends Functions.MonoWrapper<Function<A, R>, A, R> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedFunction(Function<A, R> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(1, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a);
+        }
+
+        @Override
+        public R apply(A a) {
+            return cache.get(a, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedBiFunction<A, B, R> extends Functions.BiWrapper<BiFunction<A, B, R>, A, B, R> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedBiFunction(BiFunction<A, B, R> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(2, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a, (B) b);
+        }
+
+        @Override
+        public R apply(A a, B b) {
+            return cache.get(a, b, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedTriFunction<A, B, C, R> extends Functions.TriWrapper<TriFunction<A, B, C, R>, A, B, C, R> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedTriFunction(TriFunction<A, B, C, R> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(3, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a, (B) b, (C) c);
+        }
+
+        @Override
+        public R apply(A a, B b, C c) {
+            return cache.get(a, b, c, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedQuadriFunction<A, B, C, D, R> extends Functions.QuadriWrapper<QuadriFunction<A, B, C, D, R>, A, B, C, D, R> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedQuadriFunction(QuadriFunction<A, B, C, D, R> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(4, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a, (B) b, (C) c, (D) d);
+        }
+
+        @Override
+        public R apply(A a, B b, C c, D d) {
+            return cache.get(a, b, c, d, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedThrowingFunction<A, R, E extends Exception> extends Functions.ThrowingMonoWrapper<ThrowingFunction<A, R, E>, A, R, E> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedThrowingFunction(ThrowingFunction<A, R, E> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(1, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a);
+        }
+
+        @Override
+        public R applyWithException(A a) throws E {
+            // wrapped.apply throws the exceptions of wrapped.applyWithException sneakily
+            return cache.get(a, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedThrowingBiFunction<A, B, R, E extends Exception> extends Functions.ThrowingBiWrapper<ThrowingBiFunction<A, B, R, E>, A, B, R, E> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedThrowingBiFunction(ThrowingBiFunction<A, B, R, E> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(2, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a, (B) b);
+        }
+
+        @Override
+        public R applyWithException(A a, B b) throws E {
+            return cache.get(a, b, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedThrowingTriFunction<A, B, C, R, E extends Exception> extends Functions.ThrowingTriWrapper<ThrowingTriFunction<A, B, C, R, E>, A, B, C, R, E> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedThrowingTriFunction(ThrowingTriFunction<A, B, C, R, E> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(3, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a, (B) b, (C) c);
+        }
+
+        @Override
+        public R applyWithException(A a, B b, C c) throws E {
+            return cache.get(a, b, c, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedThrowingQuadriFunction<A, B, C, D, R, E extends Exception> extends Functions.ThrowingQuadriWrapper<ThrowingQuadriFunction<A, B, C, D, R, E>, A, B, C, D, R, E> implements Memoized {
+        private final BoundedCache<R> cache;
+        private final BoundedCache.Loader<R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedThrowingQuadriFunction(ThrowingQuadriFunction<A, B, C, D, R, E> wrapped, int maxSize, Eviction eviction) {
+            super(wrapped, value(maxSize, eviction), reason(maxSize, eviction));
+            this.cache = new BoundedCache<>(4, maxSize, eviction);
+            this.loader = (a, b, c, d) -> wrapped.apply((A) a, (B) b, (C) c, (D) d);
+        }
+
+        @Override
+        public R applyWithException(A a, B b, C c, D d) throws E {
+            return cache.get(a, b, c, d, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedIntFunction<R> extends ValueWrapper<IntFunction<R>> implements IntFunction<R>, Memoized {
+        private final PrimitiveCache.LongKeyed<R> cache;
+        private final LongFunction<R> loader;
+
+        MemoizedIntFunction(IntFunction<R> wrapped, int maxSize) {
+            super(wrapped, maxSize, "memoizeInt " + maxSize);
+            this.cache = new PrimitiveCache.LongKeyed<>(maxSize);
+            this.loader = key -> wrapped.apply((int) key);
+        }
+
+        @Override
+        public R apply(int value) {
+            return cache.get(value, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedLongFunction<R> extends ValueWrapper<LongFunction<R>> implements LongFunction<R>, Memoized {
+        private final PrimitiveCache.LongKeyed<R> cache;
+
+        MemoizedLongFunction(LongFunction<R> wrapped, int maxSize) {
+            super(wrapped, maxSize, "memoizeLong " + maxSize);
+            this.cache = new PrimitiveCache.LongKeyed<>(maxSize);
+        }
+
+        @Override
+        public R apply(long value) {
+            return cache.get(value, wrapped);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedToIntFunction<A> extends ValueWrapper<ToIntFunction<A>> implements ToIntFunction<A>, Memoized {
+        private final PrimitiveCache.ToLong<A> cache;
+        private final ToLongFunction<A> loader;
+
+        MemoizedToIntFunction(ToIntFunction<A> wrapped, int maxSize) {
+            super(wrapped, maxSize, "memoizeToInt " + maxSize);
+            this.cache = new PrimitiveCache.ToLong<>(maxSize);
+            this.loader = wrapped::applyAsInt;
+        }
+
+        @Override
+        public int applyAsInt(A value) {
+            return (int) cache.get(value, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedToLongFunction<A> extends ValueWrapper<ToLongFunction<A>> implements ToLongFunction<A>, Memoized {
+        private final PrimitiveCache.ToLong<A> cache;
+
+        MemoizedToLongFunction(ToLongFunction<A> wrapped, int maxSize) {
+            super(wrapped, maxSize, "memoizeToLong " + maxSize);
+            this.cache = new PrimitiveCache.ToLong<>(maxSize);
+        }
+
+        @Override
+        public long applyAsLong(A value) {
+            return cache.get(value, wrapped);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedWeakIdentityFunction<A, R> extends Functions.MonoWrapper<Function<A, R>, A, R> implements Memoized {
+        private final WeakIdentityCache<R> cache = new WeakIdentityCache<>();
+        private final Function<Object, R> loader;
+
+        @SuppressWarnings("unchecked")
+        MemoizedWeakIdentityFunction(Function<A, R> wrapped) {
+            super(wrapped, null, "memoizeWeakIdentity");
+            this.loader = a -> wrapped.apply((A) a);
+        }
+
+        @Override
+        public R apply(A a) {
+            return cache.get(a, loader);
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+
+    static final class MemoizedPersistentFunction<A, R> extends Functions.MonoWrapper<Function<A, R>, A, R> implements Memoized {
+        private final PersistentStore<A, R> store;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        MemoizedPersistentFunction(Function<A, R> wrapped, PersistentStore<A, R> store) {
+            super(wrapped, store, "memoize " + store.getFile());
+            this.store = store;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public R apply(A a) {
+            Object stored = store.lookup(a);
+            if (stored != PersistentStore.ABSENT) {
+                hits.increment();
+                return (R) stored;
+            }
+            misses.increment();
+            return store.putIfAbsent(a, wrapped.apply(a));
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return new CacheStatistics(hits.sum(), misses.sum(), 0, store.size());
+        }
+
+        @Override
+        public void invalidateAll() {
+            store.clear();
+        }
+    }
+
+    static final class MemoizedPersistentThrowingFunction<A, R, E extends Exception> extends Functions.ThrowingMonoWrapper<ThrowingFunction<A, R, E>, A, R, E> implements Memoized {
+        private final PersistentStore<A, R> store;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        MemoizedPersistentThrowingFunction(ThrowingFunction<A, R, E> wrapped, PersistentStore<A, R> store) {
+            super(wrapped, store, "memoize " + store.getFile());
+            this.store = store;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public R applyWithException(A a) throws E {
+            Object stored = store.lookup(a);
+            if (stored != PersistentStore.ABSENT) {
+                hits.increment();
+                return (R) stored;
+            }
+            misses.increment();
+            return store.putIfAbsent(a, wrapped.applyWithException(a));
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return new CacheStatistics(hits.sum(), misses.sum(), 0, store.size());
+        }
+
+        @Override
+        public void invalidateAll() {
+            store.clear();
+        }
+    }
+
+    static final class MemoizedOffHeapFunction<A, R> extends Functions.MonoWrapper<Function<A, R>, A, R> implements Memoized {
+        private final Codec<A> keyCodec;
+        private final OffHeapCache<R> cache;
+
+        MemoizedOffHeapFunction(Function<A, R> wrapped, Codec<A> keyCodec, Codec<R> valueCodec, long maxBytes) {
+            super(wrapped, Arrays.asList(keyCodec, valueCodec, maxBytes), "memoizeOffHeap " + maxBytes);
+            this.keyCodec = Objects.requireNonNull(keyCodec);
+            this.cache = new OffHeapCache<>(Objects.requireNonNull(valueCodec), maxBytes);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public R apply(A a) {
+            byte[] key = a == null ? null : keyCodec.encode(a);
+            Object stored = cache.lookup(key);
+            if (stored != OffHeapCache.ABSENT) {
+                return (R) stored;
+            }
+            R result = wrapped.apply(a);
+            cache.put(key, result);
+            return result;
+        }
+
+        @Override
+        public CacheStatistics statistics() {
+            return cache.statistics();
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.invalidateAll();
+        }
+    }
+}
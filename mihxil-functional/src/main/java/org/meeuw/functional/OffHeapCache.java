@@ -0,0 +1,465 @@
+package org.meeuw.functional;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache of memoized results outside the java heap, as used by {@link Functions#memoizeOffHeap(java.util.function.Function, Codec, Codec, long)}.
+ * <p>
+ * Keys and values are stored {@link Codec encoded} in slabs: direct {@link ByteBuffer}s, which are divided in chunks of one size, a power of two. An entry is stored in the smallest chunk it fits in. The bookkeeping (the hash index, the LRU lists and the free chunks) is kept in primitive arrays, so however many entries there are, the garbage collector only has to trace a handful of objects. Values are decoded on every hit.
+ * <p>
+ * The total size of the slabs is bounded. If no chunk of the right size is free, and no new slab can be allocated, the least recently used entry of the same chunk size is evicted, as in memcached. If there is no entry of that size either, because all slabs are divided in chunks of other sizes, a whole slab is reassigned: the slab of the least recently used entry of the size that has the most slabs is emptied, and divided in chunks of the needed size. So when the sizes of the entries change over time, the slabs follow. Entries that are larger than a slab are not stored at all.
+ * <p>
+ * All operations take one lock, but encoding and decoding happen outside it.
+ *
+ * @param <V> the type of the values
+ * @since 1.18
+ */
+final class OffHeapCache<V> {
+
+    /**
+     * Returned by {@link #lookup(byte[])} if the key is not present.
+     */
+    static final Object ABSENT = new Object();
+
+    static final int MIN_CHUNK_BITS = 6;
+    static final int MAX_SLAB_BITS = 20;
+    /**
+     * key length, value length. A length of {@code -1} means {@code null}.
+     */
+    static final int ENTRY_HEADER = 8;
+    private static final int NONE = -1;
+
+    private final Codec<V> codec;
+    private final long maxBytes;
+    private final int slabBits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    /**
+     * Per slab: the chunk size it is divided in
+     */
+    private byte[] slabChunkBits;
+    /**
+     * Per chunk size: the number of slabs divided in chunks of that size
+     */
+    private final int[] slabCounts;
+
+    /**
+     * Per chunk size: a stack of the locations of free chunks
+     */
+    private final long[][] freeChunks;
+    private final int[] freeCounts;
+    /**
+     * Per chunk size: the least and most recently used entry
+     */
+    private final int[] lruHeads;
+    private final int[] lruTails;
+
+    /*
+     * The entries, by id. A location is the index of the slab in the upper, and the offset in the lower 32 bits.
+     */
+    private long[] locations;
+    private int[] hashes;
+    private int[] prev;
+    private int[] next;
+    /**
+     * The chunk size of every entry, or {@code 0} if the id is free
+     */
+    private byte[] chunkBits;
+    private int[] freeIds;
+    private int freeIdCount;
+
+    /**
+     * Open addressing table of entry ids plus one, so that 0 is empty.
+     */
+    private int[] index;
+    private int size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder reassignments = new LongAdder();
+
+    OffHeapCache(Codec<V> codec, long maxBytes) {
+        if (maxBytes < 1L << MIN_CHUNK_BITS) {
+            throw new IllegalArgumentException("maxBytes must be at least " + (1 << MIN_CHUNK_BITS) + ": " + maxBytes);
+        }
+        this.codec = codec;
+        this.maxBytes = maxBytes;
+        this.slabBits = Math.min(MAX_SLAB_BITS, 63 - Long.numberOfLeadingZeros(maxBytes));
+        this.freeChunks = new long[slabBits + 1][];
+        this.freeCounts = new int[slabBits + 1];
+        this.lruHeads = new int[slabBits + 1];
+        this.lruTails = new int[slabBits + 1];
+        this.slabCounts = new int[slabBits + 1];
+        reset();
+    }
+
+    private void reset() {
+        slabs.clear();
+        slabChunkBits = new byte[0];
+        for (int c = MIN_CHUNK_BITS; c <= slabBits; c++) {
+            freeChunks[c] = new long[0];
+            freeCounts[c] = 0;
+            slabCounts[c] = 0;
+            lruHeads[c] = NONE;
+            lruTails[c] = NONE;
+        }
+        locations = new long[0];
+        hashes = new int[0];
+        prev = new int[0];
+        next = new int[0];
+        chunkBits = new byte[0];
+        freeIds = new int[0];
+        freeIdCount = 0;
+        index = new int[16];
+        size = 0;
+    }
+
+    static int hash(byte[] key) {
+        return (key == null ? -1 : Arrays.hashCode(key)) * 0x9E3779B9;
+    }
+
+    /**
+     * @param key the encoded key, or {@code null}
+     * @return the decoded value, or {@link #ABSENT}
+     */
+    Object lookup(byte[] key) {
+        int h = hash(key);
+        byte[] value;
+        lock.lock();
+        try {
+            int id = find(key, h);
+            if (id == NONE) {
+                misses.increment();
+                return ABSENT;
+            }
+            hits.increment();
+            touch(id);
+            ByteBuffer slab = slabs.get((int) (locations[id] >>> 32));
+            int offset = (int) locations[id];
+            int keyLength = slab.getInt(offset);
+            int valueLength = slab.getInt(offset + 4);
+            if (valueLength < 0) {
+                return null;
+            }
+            value = new byte[valueLength];
+            slab.position(offset + ENTRY_HEADER + Math.max(0, keyLength));
+            slab.get(value);
+        } finally {
+            lock.unlock();
+        }
+        return codec.decode(value);
+    }
+
+    /**
+     * Stores a value, replacing the one that is present for the key.
+     * @param key the encoded key, or {@code null}
+     * @param value the value
+     * @return whether the value was stored. It is not if it is too large.
+     */
+    boolean put(byte[] key, V value) {
+        byte[] bytes = value == null ? null : codec.encode(value);
+        int keyLength = key == null ? -1 : key.length;
+        int valueLength = bytes == null ? -1 : bytes.length;
+        long length = (long) ENTRY_HEADER + Math.max(0, keyLength) + Math.max(0, valueLength);
+        if (length > 1L << slabBits) {
+            return false;
+        }
+        int bits = Math.max(MIN_CHUNK_BITS, 32 - Integer.numberOfLeadingZeros((int) length - 1));
+        int h = hash(key);
+        lock.lock();
+        try {
+            int existing = find(key, h);
+            if (existing != NONE) {
+                remove(existing);
+            }
+            long location = allocate(bits);
+            if (location == NONE) {
+                return false;
+            }
+            ByteBuffer slab = slabs.get((int) (location >>> 32));
+            slab.position((int) location);
+            slab.putInt(keyLength).putInt(valueLength);
+            if (key != null) {
+                slab.put(key);
+            }
+            if (bytes != null) {
+                slab.put(bytes);
+            }
+            int id = newId();
+            locations[id] = location;
+            hashes[id] = h;
+            chunkBits[id] = (byte) bits;
+            append(id);
+            insert(id);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void invalidateAll() {
+        lock.lock();
+        try {
+            reset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes of the slabs, including the free chunks
+     */
+    long getAllocatedBytes() {
+        lock.lock();
+        try {
+            return (long) slabs.size() << slabBits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of times a slab was divided in chunks of another size
+     */
+    long getReassignmentCount() {
+        return reassignments.sum();
+    }
+
+    CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    private int find(byte[] key, int h) {
+        int m = index.length - 1;
+        for (int slot = home(h), i = 0; i <= m; slot = (slot + 1) & m, i++) {
+            int id = index[slot] - 1;
+            if (id == NONE) {
+                return NONE;
+            }
+            if (hashes[id] == h && keyEquals(id, key)) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    private boolean keyEquals(int id, byte[] key) {
+        ByteBuffer slab = slabs.get((int) (locations[id] >>> 32));
+        int offset = (int) locations[id];
+        int keyLength = slab.getInt(offset);
+        if (key == null || keyLength < 0) {
+            return key == null && keyLength < 0;
+        }
+        if (keyLength != key.length) {
+            return false;
+        }
+        offset += ENTRY_HEADER;
+        for (int i = 0; i < keyLength; i++) {
+            if (slab.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int home(int h) {
+        return (h >>> 16 ^ h) & (index.length - 1);
+    }
+
+    private void insert(int id) {
+        if ((size + 1) * 2 > index.length) {
+            int[] old = index;
+            index = new int[old.length * 2];
+            for (int entry : old) {
+                if (entry != 0) {
+                    place(entry - 1);
+                }
+            }
+        }
+        place(id);
+        size++;
+    }
+
+    private void place(int id) {
+        int m = index.length - 1;
+        int slot = home(hashes[id]);
+        while (index[slot] != 0) {
+            slot = (slot + 1) & m;
+        }
+        index[slot] = id + 1;
+    }
+
+    /**
+     * Removes an entry from the index and its LRU list, and frees its chunk.
+     */
+    private void remove(int id) {
+        int m = index.length - 1;
+        int slot = home(hashes[id]);
+        while (index[slot] != id + 1) {
+            slot = (slot + 1) & m;
+        }
+        int free = slot;
+        for (int i = (free + 1) & m; index[i] != 0; i = (i + 1) & m) {
+            int home = home(hashes[index[i] - 1]);
+            // move slot i to the free one, if its home is not cyclically in (free, i]
+            if (((i - home) & m) >= ((i - free) & m)) {
+                index[free] = index[i];
+                free = i;
+            }
+        }
+        index[free] = 0;
+        size--;
+        unlink(id);
+        int bits = chunkBits[id];
+        push(bits, locations[id]);
+        chunkBits[id] = 0;
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(16, freeIds.length * 2));
+        }
+        freeIds[freeIdCount++] = id;
+    }
+
+    private long allocate(int bits) {
+        if (freeCounts[bits] == 0) {
+            if ((long) (slabs.size() + 1) << slabBits <= maxBytes) {
+                slabs.add(ByteBuffer.allocateDirect(1 << slabBits));
+                slabChunkBits = Arrays.copyOf(slabChunkBits, slabs.size());
+                divide(slabs.size() - 1, bits);
+            } else if (lruHeads[bits] != NONE) {
+                remove(lruHeads[bits]);
+                evictions.increment();
+            } else if (! reassign(bits)) {
+                return NONE;
+            }
+        }
+        return freeChunks[bits][--freeCounts[bits]];
+    }
+
+    /**
+     * Divides a slab in free chunks of the given size
+     */
+    private void divide(int slab, int bits) {
+        slabChunkBits[slab] = (byte) bits;
+        slabCounts[bits]++;
+        long location = (long) slab << 32;
+        for (int offset = (1 << slabBits) - (1 << bits); offset >= 0; offset -= 1 << bits) {
+            push(bits, location | offset);
+        }
+    }
+
+    /**
+     * Takes a slab from the chunk size that has the most slabs, and divides it in chunks of the given size. The entries in the slab are evicted.
+     * @return whether a slab was found
+     */
+    private boolean reassign(int bits) {
+        int from = NONE;
+        for (int c = MIN_CHUNK_BITS; c <= slabBits; c++) {
+            if (c != bits && slabCounts[c] > 0 && (from == NONE || slabCounts[c] > slabCounts[from])) {
+                from = c;
+            }
+        }
+        if (from == NONE) {
+            return false;
+        }
+        int slab;
+        if (lruHeads[from] != NONE) {
+            slab = (int) (locations[lruHeads[from]] >>> 32);
+        } else {
+            slab = 0;
+            while (slabChunkBits[slab] != from) {
+                slab++;
+            }
+        }
+        for (int id = 0; id < locations.length; id++) {
+            if (chunkBits[id] != 0 && (int) (locations[id] >>> 32) == slab) {
+                remove(id);
+                evictions.increment();
+            }
+        }
+        // all chunks of the slab are free now, drop them
+        int kept = 0;
+        for (int i = 0; i < freeCounts[from]; i++) {
+            if ((int) (freeChunks[from][i] >>> 32) != slab) {
+                freeChunks[from][kept++] = freeChunks[from][i];
+            }
+        }
+        freeCounts[from] = kept;
+        slabCounts[from]--;
+        divide(slab, bits);
+        reassignments.increment();
+        return true;
+    }
+
+    private void push(int bits, long location) {
+        if (freeCounts[bits] == freeChunks[bits].length) {
+            freeChunks[bits] = Arrays.copyOf(freeChunks[bits], Math.max(16, freeChunks[bits].length * 2));
+        }
+        freeChunks[bits][freeCounts[bits]++] = location;
+    }
+
+    private int newId() {
+        if (freeIdCount > 0) {
+            return freeIds[--freeIdCount];
+        }
+        int id = locations.length;
+        int length = Math.max(16, id * 2);
+        locations = Arrays.copyOf(locations, length);
+        hashes = Arrays.copyOf(hashes, length);
+        prev = Arrays.copyOf(prev, length);
+        next = Arrays.copyOf(next, length);
+        chunkBits = Arrays.copyOf(chunkBits, length);
+        freeIds = Arrays.copyOf(freeIds, length);
+        for (int i = length - 1; i > id; i--) {
+            freeIds[freeIdCount++] = i;
+        }
+        return id;
+    }
+
+    private void append(int id) {
+        int bits = chunkBits[id];
+        prev[id] = lruTails[bits];
+        next[id] = NONE;
+        if (lruTails[bits] == NONE) {
+            lruHeads[bits] = id;
+        } else {
+            next[lruTails[bits]] = id;
+        }
+        lruTails[bits] = id;
+    }
+
+    private void unlink(int id) {
+        int bits = chunkBits[id];
+        if (prev[id] == NONE) {
+            lruHeads[bits] = next[id];
+        } else {
+            next[prev[id]] = next[id];
+        }
+        if (next[id] == NONE) {
+            lruTails[bits] = prev[id];
+        } else {
+            prev[next[id]] = prev[id];
+        }
+    }
+
+    private void touch(int id) {
+        if (next[id] != NONE) {
+            unlink(id);
+            append(id);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.meeuw.functional;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the value of a supplier per thread, using a {@link ThreadLocal}.
+ * <p>
+ * All created values are remembered together with a weak reference to their thread, so that {@link #close()} can close them if they are {@link AutoCloseable}. The values of threads that have terminated are closed and forgotten whenever a value is created for a new thread, so a pool with a lot of thread churn does not make them pile up.
+ *
+ * @param <T> the type of the value supplied
+ * @since 1.18
+ * @see Suppliers#perThread(Supplier)
+ */
+class PerThreadSupplier<T> extends Suppliers.SupplierWrapper<T, Supplier<T>> implements UnwrappableCloseableSupplier<T, Supplier<T>> {
+
+    private final Queue<Created<T>> created = new ConcurrentLinkedQueue<>();
+    private volatile ThreadLocal<T> local = ThreadLocal.withInitial(this::create);
+
+    PerThreadSupplier(Supplier<T> wrapped) {
+        super(wrapped, "per thread");
+    }
+
+    @Override
+    public T get() {
+        ThreadLocal<T> l = local;
+        if (l == null) {
+            throw new IllegalStateException(this + " is closed");
+        }
+        return l.get();
+    }
+
+    private T create() {
+        prune();
+        T value = wrapped.get();
+        if (value != null) {
+            created.add(new Created<>(Thread.currentThread(), value));
+            if (local == null) {
+                // closed meanwhile
+                try {
+                    drain();
+                } catch (Exception e) {
+                    Suppliers.uncaught(e);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Closes and forgets the values of threads that terminated. Entries are removed before closing, so a value is never closed twice.
+     */
+    private void prune() {
+        List<T> dead = new ArrayList<>();
+        for (Iterator<Created<T>> i = created.iterator(); i.hasNext(); ) {
+            Created<T> c = i.next();
+            Thread thread = c.thread.get();
+            if ((thread == null || ! thread.isAlive()) && created.remove(c)) {
+                dead.add(c.value);
+            }
+        }
+        try {
+            Suppliers.closeAll(dead);
+        } catch (Exception e) {
+            Suppliers.uncaught(e);
+        }
+    }
+
+    /**
+     * Closes all remembered values. Every value is polled from the queue before closing it, so if this happens concurrently, every value is still closed only once.
+     */
+    private void drain() throws Exception {
+        List<T> values = new ArrayList<>();
+        Created<T> c;
+        while ((c = created.poll()) != null) {
+            values.add(c.value);
+        }
+        Suppliers.closeAll(values);
+    }
+
+    /**
+     * @return the number of values that are remembered to be closed
+     */
+    int size() {
+        return created.size();
+    }
+
+    /**
+     * Closes all values that were created for any thread, if they are {@link AutoCloseable}. After this, the supplier can't be used anymore.
+     */
+    @Override
+    public void close() throws Exception {
+        local = null;
+        drain();
+    }
+
+    private static final class Created<T> {
+        final WeakReference<Thread> thread;
+        final T value;
+
+        Created(Thread thread, T value) {
+            this.thread = new WeakReference<>(thread);
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package org.meeuw.functional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A map of keys to values in a memory mapped file, which survives restarts of the JVM. It is meant as a persistent tier for memoized results, see {@link Functions#memoizePersistent(java.util.function.Function, PersistentStore)}.
+ * <p>
+ * The file is an append only log. It starts with a header, containing the length of the log that was committed, followed by the records. Each record contains the encoded key and value, and a CRC32 checksum of them. A record is first written completely, and only then committed by updating the length in the header. When the file is opened, the records are read to rebuild the index of keys in memory, until the committed length, or until the first record that has a wrong checksum, e.g. because the process or system crashed while it was being written. Everything after that is discarded. The values themselves are only decoded when requested.
+ * <p>
+ * If a key is stored more than once, the last value wins. The space of the older values is not reclaimed, except by {@link #clear()}.
+ * <p>
+ * Keys and values may be {@code null}. Since a file can only be mapped in chunks of at most 2GB, the log cannot be larger than that. The mapping grows by doubling; mappings that were replaced are only released by the garbage collector.
+ * <p>
+ * Writes are visible to other readers of the mapping immediately, but only guaranteed to be on disk after {@link #flush()} or {@link #close()}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ * @since 1.18
+ */
+public final class PersistentStore<K, V> implements AutoCloseable {
+
+    static final int MAGIC = 0x4D454D4F; // MEMO
+    static final int VERSION = 1;
+    /**
+     * magic, version, committed length
+     */
+    static final int HEADER = 16;
+    static final int COMMITTED_OFFSET = 8;
+    /**
+     * key length, value length, checksum. A length of {@code -1} means {@code null}.
+     */
+    static final int RECORD_HEADER = 12;
+    static final int INITIAL_SIZE = 64 * 1024;
+
+    /**
+     * Returned by {@link #lookup(Object)} if the key is not present.
+     */
+    static final Object ABSENT = new Object();
+
+    private final Path file;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final FileChannel channel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * The offsets of the records, per key
+     */
+    private final Map<K, Integer> index = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private int committed;
+    private boolean closed = false;
+
+    private PersistentStore(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        this.file = file;
+        this.keyCodec = Objects.requireNonNull(keyCodec);
+        this.valueCodec = Objects.requireNonNull(valueCodec);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large: " + size);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, size));
+            if (size < HEADER) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                commit(HEADER);
+            } else {
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    throw new IOException(file + " is not a persistent store of version " + VERSION);
+                }
+                recover((int) Math.min(buffer.getLong(COMMITTED_OFFSET), size));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a store, or creates it if the file does not exist.
+     *
+     * @param file the file of the store
+     * @param keyCodec how to store the keys
+     * @param valueCodec how to store the values
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the opened store, which should be {@link #close() closed} after use
+     * @throws IOException if the file could not be opened, or is not a persistent store
+     */
+    public static <K, V> PersistentStore<K, V> open(Path file, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        return new PersistentStore<>(file, keyCodec, valueCodec);
+    }
+
+    private void recover(int length) {
+        int offset = HEADER;
+        while (offset + RECORD_HEADER <= length) {
+            int keyLength = buffer.getInt(offset);
+            int valueLength = buffer.getInt(offset + 4);
+            int checksum = buffer.getInt(offset + 8);
+            long end = (long) offset + RECORD_HEADER + Math.max(0, keyLength) + Math.max(0, valueLength);
+            if (keyLength < -1 || valueLength < -1 || end > length) {
+                break;
+            }
+            byte[] key = read(offset + RECORD_HEADER, keyLength);
+            byte[] value = read(offset + RECORD_HEADER + Math.max(0, keyLength), valueLength);
+            if (checksum(keyLength, valueLength, key, value) != checksum) {
+                break;
+            }
+            index.put(key == null ? null : keyCodec.decode(key), offset);
+            offset = (int) end;
+        }
+        if (offset != buffer.getLong(COMMITTED_OFFSET)) {
+            commit(offset);
+        } else {
+            committed = offset;
+        }
+    }
+
+    private byte[] read(int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static int checksum(int keyLength, int valueLength, byte[] key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(8).putInt(keyLength).putInt(valueLength).array());
+        if (key != null) {
+            crc.update(key);
+        }
+        if (value != null) {
+            crc.update(value);
+        }
+        return (int) crc.getValue();
+    }
+
+    private void commit(int length) {
+        buffer.putLong(COMMITTED_OFFSET, length);
+        committed = length;
+    }
+
+    /**
+     * @param key a key
+     * @return the stored value, or {@link #ABSENT}
+     */
+    Object lookup(K key) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            Integer offset = index.get(key);
+            if (offset == null) {
+                return ABSENT;
+            }
+            int keyLength = buffer.getInt(offset);
+            int valueLength = buffer.getInt(offset + 4);
+            byte[] value = read(offset + RECORD_HEADER + Math.max(0, keyLength), valueLength);
+            return value == null ? null : valueCodec.decode(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param key a key
+     * @return the value stored for the key, or {@code null} if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        Object value = lookup(key);
+        return value == ABSENT ? null : (V) value;
+    }
+
+    /**
+     * @param key a key
+     * @return whether a value is stored for the key
+     */
+    public boolean containsKey(K key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a value for a key to the log.
+     * @param key a key
+     * @param value the value for the key
+     * @throws UncheckedIOException if the file could not be extended
+     */
+    public void put(K key, V value) {
+        put(key, value, false);
+    }
+
+    /**
+     * Stores the value for the key, unless there already is one.
+     * @return the stored value, which is the given one, or the one that was present already
+     */
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(K key, V value) {
+        Object existing = put(key, value, true);
+        return existing == ABSENT ? value : (V) existing;
+    }
+
+    private Object put(K key, V value, boolean ifAbsent) {
+        byte[] keyBytes = key == null ? null : keyCodec.encode(key);
+        byte[] valueBytes = value == null ? null : valueCodec.encode(value);
+        int keyLength = keyBytes == null ? -1 : keyBytes.length;
+        int valueLength = valueBytes == null ? -1 : valueBytes.length;
+        int checksum = checksum(keyLength, valueLength, keyBytes, valueBytes);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (ifAbsent && index.containsKey(key)) {
+                return lookup(key);
+            }
+            int offset = committed;
+            long end = (long) offset + RECORD_HEADER + Math.max(0, keyLength) + Math.max(0, valueLength);
+            if (end > Integer.MAX_VALUE) {
+                throw new UncheckedIOException(new IOException(file + " would become too large"));
+            }
+            ensureCapacity((int) end);
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.putInt(keyLength).putInt(valueLength).putInt(checksum);
+            if (keyBytes != null) {
+                view.put(keyBytes);
+            }
+            if (valueBytes != null) {
+                view.put(valueBytes);
+            }
+            commit((int) end);
+            index.put(key, offset);
+            return ABSENT;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Maps a larger part of the file if needed, doubling the size of the mapping. Changes in the old mapping are forced to disk first. The old mapping itself can't be unmapped explicitly; it is released when it is garbage collected. So while the log grows, a few of them may use address space until then.
+     */
+    private void ensureCapacity(int required) {
+        if (required > buffer.capacity()) {
+            long size = Math.min(Integer.MAX_VALUE, Math.max(2L * buffer.capacity(), required));
+            buffer.force();
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException(file + " is closed");
+        }
+    }
+
+    /**
+     * @return the number of keys stored
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the length of the log, including the header and values that were overwritten
+     */
+    public int getCommittedLength() {
+        lock.readLock().lock();
+        try {
+            return committed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the file of the log
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Drops all keys and values, and reclaims their space.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            index.clear();
+            commit(HEADER);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all changes to disk.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            buffer.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all changes to disk, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.force();
+            channel.close();
+            index.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "persistent " + file + " (" + keyCodec + " -> " + valueCodec + ")";
+    }
+}
@@ -0,0 +1,280 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A bounded pool of objects, which are expensive to create, and can't be shared between threads. E.g. parsers, digesters or buffers.
+ * <p>
+ * {@link #get()} leases an instance as a {@link CloseableSupplier}. Closing it returns the instance to the pool, so this is best used in try-with-resources:
+ * <pre>{@code
+ * try (CloseableSupplier<MessageDigest> digest = pool.get()) {
+ *     digest.get().update(bytes);
+ *     ...
+ * }
+ * }</pre>
+ * At most {@code maxSize} instances exist at the same time, leased or idle. If that many are leased, {@link #get()} blocks until one is returned, and {@link #get(Duration)} waits at most the given time. Otherwise, an idle instance is leased, or if there is none, a new one is created. Discarded instances are closed if they are {@link AutoCloseable}.
+ *
+ * @param <T> The type of the pooled objects
+ * @since 1.18
+ * @see Suppliers#pooled(Supplier, int)
+ * @see Suppliers#pooled(Supplier, int, Predicate, Duration)
+ */
+public final class Pool<T> implements Supplier<CloseableSupplier<T>>, Unwrappable<Supplier<T>>, AutoCloseable {
+
+    private final Supplier<T> factory;
+    private final int maxSize;
+    private final Predicate<? super T> validator;
+    private final long maxIdleNanos;
+    private final LongSupplier ticker;
+
+    private final ConcurrentLinkedDeque<Idle<T>> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    /**
+     * One permit per instance that may be leased
+     */
+    private final Semaphore available;
+    private final LongAdder createCount = new LongAdder();
+    private final LongAdder destroyCount = new LongAdder();
+    private volatile boolean closed = false;
+
+    Pool(Supplier<T> factory, int maxSize, Predicate<? super T> validator, Duration maxIdle, LongSupplier ticker) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.available = new Semaphore(maxSize);
+        this.validator = validator;
+        this.maxIdleNanos = maxIdle == null ? Long.MAX_VALUE : maxIdle.toNanos();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Leases an instance from the pool. The instance is either an idle one that is still valid, or a new one. If {@code maxSize} instances are leased already, this waits until one is returned.
+     * @return A closeable supplier for the instance. Closing it returns the instance to the pool.
+     * @throws IllegalStateException if the pool is closed
+     */
+    @Override
+    public CloseableSupplier<T> get() {
+        checkOpen();
+        try {
+            available.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return Sneaky.sneakyThrow(ie);
+        }
+        return lease();
+    }
+
+    /**
+     * Leases an instance from the pool, like {@link #get()}, but waits at most the given time for one to be returned.
+     * @param maxWait how long to wait at most
+     * @return A closeable supplier for the instance. Closing it returns the instance to the pool.
+     * @throws TimeoutException if {@code maxSize} instances were leased for all of {@code maxWait}
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pool is closed
+     */
+    public CloseableSupplier<T> get(Duration maxWait) throws InterruptedException, TimeoutException {
+        checkOpen();
+        if (! available.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new TimeoutException("No instance returned to " + this + " within " + maxWait);
+        }
+        return lease();
+    }
+
+    /**
+     * Only called with a permit acquired, which is released when the lease is closed, or if it fails.
+     */
+    private CloseableSupplier<T> lease() {
+        try {
+            checkOpen();
+            evictIdle();
+            Idle<T> candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                idleCount.decrementAndGet();
+                if (validator.test(candidate.value)) {
+                    return new Lease(candidate.value);
+                }
+                destroy(candidate.value);
+            }
+            T created = Objects.requireNonNull(factory.get(), () -> factory + " supplied null");
+            createCount.increment();
+            return new Lease(created);
+        } catch (RuntimeException | Error e) {
+            available.release();
+            throw e;
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException(this + " is closed");
+        }
+    }
+
+    /**
+     * Discards the instances that were idle for longer than the maximal idle time. This happens on every {@link #get()} too, but it can also be called (e.g. periodically) to release the resources of a pool that is not used any more for a while.
+     */
+    public void evictIdle() {
+        if (maxIdleNanos == Long.MAX_VALUE) {
+            return;
+        }
+        long now = ticker.getAsLong();
+        Idle<T> oldest;
+        while ((oldest = idle.peekLast()) != null && now - oldest.since >= maxIdleNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                idleCount.decrementAndGet();
+                destroy(oldest.value);
+            }
+        }
+    }
+
+    void release(T value) {
+        try {
+            if (closed) {
+                destroy(value);
+                return;
+            }
+            if (idleCount.incrementAndGet() > maxSize) {
+                idleCount.decrementAndGet();
+                destroy(value);
+                return;
+            }
+            idle.offerFirst(new Idle<>(value, ticker.getAsLong()));
+            if (closed) {
+                // closed concurrently
+                clear();
+            }
+        } finally {
+            available.release();
+        }
+    }
+
+    private void destroy(T value) {
+        destroyCount.increment();
+        if (value instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) value).close();
+            } catch (Exception e) {
+                Suppliers.uncaught(e);
+            }
+        }
+    }
+
+    private void clear() {
+        Idle<T> i;
+        while ((i = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroy(i.value);
+        }
+    }
+
+    /**
+     * @return The number of instances currently idle in the pool
+     */
+    public int getIdleCount() {
+        return Math.max(0, idleCount.get());
+    }
+
+    /**
+     * @return The number of instances currently leased
+     */
+    public int getLeasedCount() {
+        return maxSize - available.availablePermits();
+    }
+
+    /**
+     * @return The number of instances that were created by this pool
+     */
+    public long getCreateCount() {
+        return createCount.sum();
+    }
+
+    /**
+     * @return The number of instances that were discarded by this pool, because they were invalid, idle too long, or returned after closing.
+     */
+    public long getDestroyCount() {
+        return destroyCount.sum();
+    }
+
+    /**
+     * The factory for new instances.
+     */
+    @Override
+    public Supplier<T> unwrap() {
+        return factory;
+    }
+
+    /**
+     * Closes the pool. All idle instances are discarded, and instances that are returned later are discarded too. Threads waiting for an instance fail once one is returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        clear();
+    }
+
+    @Override
+    public String toString() {
+        return factory + "(pooled " + maxSize + ")";
+    }
+
+    private static final class Idle<T> {
+        final T value;
+        final long since;
+
+        Idle(T value, long since) {
+            this.value = value;
+            this.since = since;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Pool.Lease, Object> LEASED = AtomicReferenceFieldUpdater.newUpdater(Pool.Lease.class, Object.class, "value");
+
+    /**
+     * A leased instance. Closing it returns the instance to the pool. After that it can't be used anymore.
+     */
+    private final class Lease implements CloseableSupplier<T> {
+        volatile Object value;
+
+        Lease(T value) {
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get() {
+            Object v = value;
+            if (v == null) {
+                throw new IllegalStateException("Returned to " + Pool.this);
+            }
+            return (T) v;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void close() {
+            Object v = LEASED.getAndSet(this, null);
+            if (v != null) {
+                release((T) v);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "lease " + value + " from " + Pool.this;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Supplies values that were prefetched in the background into a ring buffer.
+ * <p>
+ * There is only one producer at a time, which runs on an {@link Executor} and fills the buffer when the number of available values dropped to the low-water mark. Consumers take values from the buffer lock-free. The values are produced either one by one, or in batches.
+ * <p>
+ * If the buffer is empty, a consumer calls the source itself (for a single value source), or, if no background refill is running, refills the buffer itself (for a batch source). Otherwise it waits until the running refill produced a value or finished. So a single value source may be called by a consumer and the producer at the same time, and must be thread safe. A batch source is only called by one thread at a time.
+ * <p>
+ * The source must not supply {@code null}, because an empty slot of the buffer is {@code null}. A {@code null} value makes {@link #get()} or the refill fail with a {@link NullPointerException}.
+ * <p>
+ * If a refill produces nothing, because the source supplied an empty batch or failed, no new refill is started until a consumer takes a value again.
+ *
+ * @param <T> the type of the value supplied
+ * @param <W> the type of the source supplier
+ * @since 1.18
+ * @see Suppliers#prefetching(Supplier, int, int, Executor)
+ * @see Suppliers#prefetchingBatches(Supplier, int, int, Executor)
+ */
+class PrefetchingSupplier<T, W extends Supplier<?>> extends Suppliers.SupplierWrapper<T, W> implements UnwrappableCloseableSupplier<T, W> {
+
+    private final Supplier<? extends T> single;
+    private final Supplier<? extends Iterable<? extends T>> batches;
+    private final Executor executor;
+    private final AtomicReferenceArray<T> ring;
+    private final int mask;
+    private final int lowWaterMark;
+
+    /**
+     * Position of the next value to consume
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Position of the next value to produce. Only written by the producer.
+     */
+    private volatile long tail = 0;
+    private final AtomicBoolean producing = new AtomicBoolean(false);
+    /**
+     * The remainder of the current batch. Only accessed by the producer.
+     */
+    private Iterator<? extends T> pending;
+    private volatile boolean closed = false;
+
+    /**
+     * Consumers that found the buffer empty during a refill wait on this
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition produced = lock.newCondition();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private PrefetchingSupplier(W wrapped, Supplier<? extends T> single, Supplier<? extends Iterable<? extends T>> batches, int capacity, int lowWaterMark, Executor executor) {
+        super(wrapped, "prefetching " + capacity);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        if (lowWaterMark < 0 || lowWaterMark >= size) {
+            throw new IllegalArgumentException("Low-water mark must be between 0 and " + size + ": " + lowWaterMark);
+        }
+        this.single = single;
+        this.batches = batches;
+        this.executor = executor;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.lowWaterMark = lowWaterMark;
+    }
+
+    static <T> PrefetchingSupplier<T, Supplier<T>> of(Supplier<T> source, int capacity, int lowWaterMark, Executor executor) {
+        return new PrefetchingSupplier<T, Supplier<T>>(source, source, null, capacity, lowWaterMark, executor).start();
+    }
+
+    static <T> PrefetchingSupplier<T, Supplier<? extends List<T>>> ofBatches(Supplier<? extends List<T>> source, int capacity, int lowWaterMark, Executor executor) {
+        return new PrefetchingSupplier<T, Supplier<? extends List<T>>>(source, null, source, capacity, lowWaterMark, executor).start();
+    }
+
+    private PrefetchingSupplier<T, W> start() {
+        trigger();
+        return this;
+    }
+
+    @Override
+    public T get() {
+        while (true) {
+            long h = head.get();
+            long t = tail;
+            if (h < t) {
+                int slot = (int) h & mask;
+                T value = ring.get(slot);
+                if (head.compareAndSet(h, h + 1)) {
+                    // so the buffer does not keep the value alive. The producer waits for this before it reuses the slot.
+                    ring.set(slot, null);
+                    if (t - h - 1 <= lowWaterMark) {
+                        trigger();
+                    }
+                    return value;
+                }
+                continue;
+            }
+            if (closed) {
+                throw new IllegalStateException(this + " is closed");
+            }
+            if (single != null) {
+                trigger();
+                return requireNonNull(single.get());
+            }
+            if (producing.compareAndSet(false, true)) {
+                try {
+                    if (fill(true) == 0 && ! closed) {
+                        throw new NoSuchElementException(wrapped + " supplied an empty batch");
+                    }
+                } finally {
+                    producing.set(false);
+                    signal();
+                }
+            } else {
+                awaitProduced(h);
+            }
+        }
+    }
+
+    /**
+     * Waits until a value was produced after position {@code h}, the refill finished, or this is closed.
+     */
+    private void awaitProduced(long h) {
+        waiting.incrementAndGet();
+        lock.lock();
+        try {
+            // the producer changes these before it reads waiting, so it either sees us waiting, or we see the change
+            while (producing.get() && tail <= h && ! closed) {
+                produced.await();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            Sneaky.sneakyThrow(ie);
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wakes up the consumers waiting in {@link #awaitProduced(long)}, if any.
+     */
+    private void signal() {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                produced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private T requireNonNull(T value) {
+        return Objects.requireNonNull(value, () -> wrapped + " supplied null");
+    }
+
+    /**
+     * @return the number of values that are currently available
+     */
+    int available() {
+        return (int) Math.max(0, tail - head.get());
+    }
+
+    private void trigger() {
+        if (! closed && producing.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::refill);
+            } catch (RejectedExecutionException ree) {
+                producing.set(false);
+            }
+        }
+    }
+
+    private void refill() {
+        int produced = 0;
+        try {
+            produced = fill(false);
+        } catch (RuntimeException e) {
+            Suppliers.uncaught(e);
+        } finally {
+            producing.set(false);
+            signal();
+        }
+        // if nothing was produced, trying again right away would just spin
+        if (produced > 0 && tail - head.get() <= lowWaterMark) {
+            // consumed while we were finishing
+            trigger();
+        }
+    }
+
+    /**
+     * Fills the buffer. Must only be called by the one producer.
+     * @param oneBatch whether to stop after one batch
+     * @return the number of values produced
+     */
+    private int fill(boolean oneBatch) {
+        final long start = tail;
+        long t = start;
+        boolean fetched = false;
+        while (! closed && t - head.get() <= mask) {
+            T value;
+            if (single != null) {
+                value = requireNonNull(single.get());
+            } else {
+                if (pending == null || ! pending.hasNext()) {
+                    if (oneBatch && fetched) {
+                        break;
+                    }
+                    pending = batches.get().iterator();
+                    fetched = true;
+                    if (! pending.hasNext()) {
+                        break;
+                    }
+                }
+                value = requireNonNull(pending.next());
+            }
+            int slot = (int) t & mask;
+            while (ring.get(slot) != null) {
+                // the consumer that took the previous value of this slot did not clear it yet
+                Thread.yield();
+            }
+            ring.set(slot, value);
+            tail = ++t;
+            signal();
+        }
+        return (int) (t - start);
+    }
+
+    /**
+     * Stops prefetching. Values that were prefetched but not supplied are closed if they are {@link AutoCloseable}.
+     */
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        List<T> remaining = new ArrayList<>();
+        long h;
+        while ((h = head.get()) < tail) {
+            int slot = (int) h & mask;
+            T value = ring.get(slot);
+            if (head.compareAndSet(h, h + 1)) {
+                ring.set(slot, null);
+                remaining.add(value);
+            }
+        }
+        signal();
+        Suppliers.closeAll(remaining);
+    }
+}
@@ -0,0 +1,402 @@
+package org.meeuw.functional;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded, concurrent cache of memoized results with a primitive key or a primitive value, as used by the {@code memoizeInt}, {@code memoizeLong}, {@code memoizeToInt} and {@code memoizeToLong} methods of {@link Functions}.
+ * <p>
+ * Like {@link BoundedCache}, it is divided in segments with open addressing tables, but the keys or values are stored in primitive arrays, so nothing is boxed, and there are no entry objects. Without entry objects, there is nothing to wait for while a value is being calculated. So the lock of a segment is not held during a calculation, and concurrent calls for the same key may calculate the value more than once. One of the results is memoized.
+ * <p>
+ * If a segment is full, entries are evicted with the CLOCK (second chance) algorithm: an entry that was used since the clock hand passed it the last time gets another chance.
+ *
+ * @since 1.18
+ */
+abstract class PrimitiveCache {
+
+    static final byte EMPTY = 0;
+    static final byte PRESENT = 1;
+    static final byte REFERENCED = 2;
+
+    private static final int INITIAL_LENGTH = 16;
+
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    private final Segment[] segments;
+    private final int mask;
+    private final int segmentBits;
+
+    PrimitiveCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        int count = Math.min(Integer.highestOneBit(Math.max(1, maxSize / 16)), BoundedCache.ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors()));
+        this.segments = new Segment[count];
+        this.mask = count - 1;
+        this.segmentBits = Integer.numberOfTrailingZeros(count);
+        int capacity = (maxSize + count - 1) / count;
+        for (int i = 0; i < count; i++) {
+            segments[i] = newSegment(capacity);
+        }
+    }
+
+    abstract Segment newSegment(int capacity);
+
+    final Segment segment(int h) {
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    static int hash(long key) {
+        return (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+    }
+
+    static int hash(Object key) {
+        return Objects.hashCode(key) * 0x9E3779B9;
+    }
+
+    void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                segment.clear();
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    /**
+     * An open addressing table with linear probing and backward shift deletion. The subclasses store the keys and values, this class the state of every slot, which is also the reference bit of the clock.
+     */
+    abstract class Segment extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+        byte[] states;
+        int[] hashes;
+        volatile int size;
+        private int hand;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            allocate(INITIAL_LENGTH);
+        }
+
+        void allocate(int length) {
+            states = new byte[length];
+            hashes = new int[length];
+            hand = 0;
+        }
+
+        /**
+         * Moves the key and value from one slot to another
+         */
+        abstract void move(int from, int to);
+
+        /**
+         * Drops the key and value of a slot, so they can be garbage collected
+         */
+        abstract void clear(int slot);
+
+        /**
+         * Copies all present entries to new, larger arrays
+         */
+        abstract void resize(int length);
+
+        final int index(int h, int length) {
+            return (h >>> 16 ^ h) >>> segmentBits & (length - 1);
+        }
+
+        /**
+         * Makes room for a new entry, and returns the free slot for it. Only called with the lock held.
+         * @param h the hash of the new key
+         */
+        final int reserve(int h) {
+            if (size >= capacity) {
+                evict();
+            }
+            if ((size + 1) * 2 > states.length) {
+                resize(states.length * 2);
+            }
+            int m = states.length - 1;
+            int slot = index(h, states.length);
+            while (states[slot] != EMPTY) {
+                slot = (slot + 1) & m;
+            }
+            states[slot] = PRESENT;
+            hashes[slot] = h;
+            size++;
+            return slot;
+        }
+
+        private void evict() {
+            int m = states.length - 1;
+            while (true) {
+                byte state = states[hand];
+                if (state == REFERENCED) {
+                    states[hand] = PRESENT;
+                } else if (state == PRESENT) {
+                    // another entry may be shifted into the slot of the hand, which then is the next one to consider
+                    delete(hand);
+                    evictions.increment();
+                    return;
+                }
+                hand = (hand + 1) & m;
+            }
+        }
+
+        private void delete(int slot) {
+            int m = states.length - 1;
+            int free = slot;
+            for (int i = (free + 1) & m; states[i] != EMPTY; i = (i + 1) & m) {
+                int home = index(hashes[i], states.length);
+                // move slot i to the free one, if its home is not cyclically in (free, i]
+                if (((i - home) & m) >= ((i - free) & m)) {
+                    states[free] = states[i];
+                    hashes[free] = hashes[i];
+                    move(i, free);
+                    free = i;
+                }
+            }
+            states[free] = EMPTY;
+            clear(free);
+            size--;
+        }
+
+        void clear() {
+            allocate(INITIAL_LENGTH);
+            size = 0;
+        }
+    }
+
+    /**
+     * A cache with {@code long} keys, for {@link java.util.function.IntFunction} and {@link LongFunction}.
+     */
+    static final class LongKeyed<V> extends PrimitiveCache {
+
+        LongKeyed(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        Segment newSegment(int capacity) {
+            return new LongKeySegment(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key, LongFunction<? extends V> loader) {
+            int h = hash(key);
+            LongKeySegment segment = (LongKeySegment) segment(h);
+            segment.lock();
+            try {
+                int slot = segment.find(key, h);
+                if (slot >= 0) {
+                    segment.states[slot] = REFERENCED;
+                    hits.increment();
+                    return (V) segment.values[slot];
+                }
+            } finally {
+                segment.unlock();
+            }
+            misses.increment();
+            V value = loader.apply(key);
+            segment.lock();
+            try {
+                int slot = segment.find(key, h);
+                if (slot >= 0) {
+                    // calculated concurrently
+                    return (V) segment.values[slot];
+                }
+                slot = segment.reserve(h);
+                segment.keys[slot] = key;
+                segment.values[slot] = value;
+                return value;
+            } finally {
+                segment.unlock();
+            }
+        }
+
+        final class LongKeySegment extends Segment {
+            private static final long serialVersionUID = 1L;
+            long[] keys;
+            Object[] values;
+
+            LongKeySegment(int capacity) {
+                super(capacity);
+            }
+
+            @Override
+            void allocate(int length) {
+                super.allocate(length);
+                keys = new long[length];
+                values = new Object[length];
+            }
+
+            int find(long key, int h) {
+                int m = states.length - 1;
+                for (int slot = index(h, states.length); states[slot] != EMPTY; slot = (slot + 1) & m) {
+                    if (keys[slot] == key) {
+                        return slot;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            void move(int from, int to) {
+                keys[to] = keys[from];
+                values[to] = values[from];
+            }
+
+            @Override
+            void clear(int slot) {
+                values[slot] = null;
+            }
+
+            @Override
+            void resize(int length) {
+                byte[] oldStates = states;
+                int[] oldHashes = hashes;
+                long[] oldKeys = keys;
+                Object[] oldValues = values;
+                allocate(length);
+                for (int i = 0; i < oldStates.length; i++) {
+                    if (oldStates[i] != EMPTY) {
+                        int slot = index(oldHashes[i], length);
+                        while (states[slot] != EMPTY) {
+                            slot = (slot + 1) & (length - 1);
+                        }
+                        states[slot] = oldStates[i];
+                        hashes[slot] = oldHashes[i];
+                        keys[slot] = oldKeys[i];
+                        values[slot] = oldValues[i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A cache with {@code long} values, for {@link java.util.function.ToIntFunction} and {@link ToLongFunction}. Keys may be {@code null}.
+     */
+    static final class ToLong<K> extends PrimitiveCache {
+
+        ToLong(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        Segment newSegment(int capacity) {
+            return new ToLongSegment(capacity);
+        }
+
+        long get(K key, ToLongFunction<? super K> loader) {
+            int h = hash(key);
+            // the cast is only unchecked because the segment is an inner class of this generic one. All segments are created by newSegment.
+            @SuppressWarnings("unchecked")
+            ToLongSegment segment = (ToLongSegment) segment(h);
+            segment.lock();
+            try {
+                int slot = segment.find(key, h);
+                if (slot >= 0) {
+                    segment.states[slot] = REFERENCED;
+                    hits.increment();
+                    return segment.values[slot];
+                }
+            } finally {
+                segment.unlock();
+            }
+            misses.increment();
+            long value = loader.applyAsLong(key);
+            segment.lock();
+            try {
+                int slot = segment.find(key, h);
+                if (slot >= 0) {
+                    // calculated concurrently
+                    return segment.values[slot];
+                }
+                slot = segment.reserve(h);
+                segment.keys[slot] = key;
+                segment.values[slot] = value;
+                return value;
+            } finally {
+                segment.unlock();
+            }
+        }
+
+        final class ToLongSegment extends Segment {
+            private static final long serialVersionUID = 1L;
+            Object[] keys;
+            long[] values;
+
+            ToLongSegment(int capacity) {
+                super(capacity);
+            }
+
+            @Override
+            void allocate(int length) {
+                super.allocate(length);
+                keys = new Object[length];
+                values = new long[length];
+            }
+
+            int find(Object key, int h) {
+                int m = states.length - 1;
+                for (int slot = index(h, states.length); states[slot] != EMPTY; slot = (slot + 1) & m) {
+                    if (hashes[slot] == h && Objects.equals(keys[slot], key)) {
+                        return slot;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            void move(int from, int to) {
+                keys[to] = keys[from];
+                values[to] = values[from];
+            }
+
+            @Override
+            void clear(int slot) {
+                keys[slot] = null;
+            }
+
+            @Override
+            void resize(int length) {
+                byte[] oldStates = states;
+                int[] oldHashes = hashes;
+                Object[] oldKeys = keys;
+                long[] oldValues = values;
+                allocate(length);
+                for (int i = 0; i < oldStates.length; i++) {
+                    if (oldStates[i] != EMPTY) {
+                        int slot = index(oldHashes[i], length);
+                        while (states[slot] != EMPTY) {
+                            slot = (slot + 1) & (length - 1);
+                        }
+                        states[slot] = oldStates[i];
+                        hashes[slot] = oldHashes[i];
+                        keys[slot] = oldKeys[i];
+                        values[slot] = oldValues[i];
+                    }
+                }
+            }
+        }
+    }
+}
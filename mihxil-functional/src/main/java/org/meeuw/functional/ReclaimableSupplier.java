@@ -0,0 +1,25 @@
+package org.meeuw.functional;
+
+import java.util.function.Supplier;
+
+/**
+ * A memoizing {@link Supplier} of which the memoized value may be reclaimed by the garbage collector. It is then transparently recalculated on the next call to {@link #get()}.
+ *
+ * @param <T> The type of the object supplied by this supplier
+ * @since 1.18
+ * @see Suppliers#softMemoize(Supplier)
+ * @see Suppliers#weakMemoize(Supplier)
+ */
+public interface ReclaimableSupplier<T> extends UnwrappableSupplier<T, Supplier<T>> {
+
+    /**
+     * @return How many times the memoized value was reclaimed by the garbage collector
+     */
+    long getReclaimCount();
+
+    /**
+     * @return How many times the value had to be recalculated because it was reclaimed. The first evaluation is not counted.
+     */
+    long getRecomputeCount();
+
+}
@@ -0,0 +1,87 @@
+package org.meeuw.functional;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the value of a supplier in a {@link Reference}, so that it may be reclaimed by the garbage collector.
+ * <p>
+ * Like {@link Suppliers.MemoizeSupplier} the value is read lock-free, and calculated under a {@link ReentrantLock}.
+ *
+ * @param <T> the type of the value supplied
+ * @since 1.18
+ */
+class ReferenceMemoizeSupplier<T> extends Suppliers.SupplierWrapper<T, Supplier<T>> implements ReclaimableSupplier<T> {
+
+    /**
+     * Stands in for {@code null} values, which can't be distinguished from reclaimed ones otherwise.
+     */
+    private static final Object NULL = new Object();
+
+    private final BiFunction<Object, ReferenceQueue<Object>, Reference<Object>> referenceFactory;
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private transient volatile Reference<Object> reference;
+    private volatile long reclaimCount = 0;
+    private volatile long recomputeCount = 0;
+
+    ReferenceMemoizeSupplier(Supplier<T> wrapped, BiFunction<Object, ReferenceQueue<Object>, Reference<Object>> referenceFactory, String reason) {
+        super(wrapped, reason);
+        this.referenceFactory = referenceFactory;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get() {
+        Reference<Object> r = reference;
+        if (r != null) {
+            Object value = r.get();
+            if (value != null) {
+                return value == NULL ? null : (T) value;
+            }
+        }
+        lock.lock();
+        try {
+            r = reference;
+            if (r != null) {
+                Object value = r.get();
+                if (value != null) {
+                    return value == NULL ? null : (T) value;
+                }
+                recomputeCount++;
+            }
+            T value = wrapped.get();
+            reference = referenceFactory.apply(value == null ? NULL : value, queue);
+            expunge();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getReclaimCount() {
+        lock.lock();
+        try {
+            expunge();
+            return reclaimCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getRecomputeCount() {
+        return recomputeCount;
+    }
+
+    private void expunge() {
+        while (queue.poll() != null) {
+            reclaimCount++;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A memoizing supplier that keeps supplying its current value, while refreshing it in the background.
+ * <p>
+ * The first caller(s) wait for the first value. After that, callers never wait. Refreshes happen either on an {@link Executor}, triggered by a call to {@link #get()} after the refresh interval, or periodically on a {@link ScheduledExecutorService}.
+ * <p>
+ * If a refresh fails, the last good value is kept, and the exception is offered to a failure handler. The next refresh is attempted one interval later.
+ * <p>
+ * Every load gets a sequence number when it starts, and its value is only kept if no load that started later was kept already. So a slow load never overwrites the value of a newer one.
+ *
+ * @param <T> the type of the value supplied
+ * @since 1.18
+ * @see Suppliers#refreshing(Supplier, Duration, Executor)
+ * @see Suppliers#refreshing(Supplier, Duration, ScheduledExecutorService)
+ */
+class RefreshingSupplier<T> extends Suppliers.SupplierWrapper<T, Supplier<T>> implements UnwrappableCloseableSupplier<T, Supplier<T>> {
+
+    private final Duration interval;
+    private final long intervalNanos;
+    private final Executor executor;
+    private final Consumer<? super Exception> onFailure;
+    private final LongSupplier ticker;
+    private final ReentrantLock firstLock = new ReentrantLock();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final transient AtomicReference<Loaded<T>> current = new AtomicReference<>();
+    private transient volatile long nextRefresh;
+    private volatile boolean closed = false;
+    private volatile ScheduledFuture<?> scheduled;
+
+    RefreshingSupplier(Supplier<T> wrapped, Duration interval, Executor executor, Consumer<? super Exception> onFailure, LongSupplier ticker) {
+        super(wrapped, "refreshing " + interval);
+        Objects.requireNonNull(interval, "interval");
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        this.interval = interval;
+        this.intervalNanos = Suppliers.toNanos(interval);
+        this.executor = executor;
+        this.onFailure = onFailure;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Schedules the refreshes with a fixed delay on the given scheduler, rather than triggering them on {@link #get()}.
+     */
+    RefreshingSupplier<T> schedule(ScheduledExecutorService scheduler) {
+        scheduled = scheduler.scheduleWithFixedDelay(this::refresh, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        return this;
+    }
+
+    @Override
+    public T get() {
+        Loaded<T> c = current.get();
+        if (c == null) {
+            return first();
+        }
+        if (scheduled == null && ! closed && ticker.getAsLong() - nextRefresh >= 0 && refreshing.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        refresh();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                refreshing.set(false);
+                failed(ree);
+            }
+        }
+        return c.value;
+    }
+
+    private T first() {
+        firstLock.lock();
+        try {
+            Loaded<T> c = current.get();
+            if (c == null) {
+                long s = sequence.incrementAndGet();
+                c = set(s, wrapped.get());
+            }
+            return c.value;
+        } finally {
+            firstLock.unlock();
+        }
+    }
+
+    void refresh() {
+        if (closed) {
+            return;
+        }
+        long s = sequence.incrementAndGet();
+        try {
+            set(s, wrapped.get());
+        } catch (Exception e) {
+            failed(e);
+        }
+    }
+
+    /**
+     * Keeps the value of a load, unless a load that started later was kept already.
+     * @return the current value
+     */
+    private Loaded<T> set(long s, T v) {
+        Loaded<T> loaded = new Loaded<>(s, v);
+        while (true) {
+            Loaded<T> c = current.get();
+            if (c != null && c.sequence > s) {
+                return c;
+            }
+            if (current.compareAndSet(c, loaded)) {
+                nextRefresh = ticker.getAsLong() + intervalNanos;
+                return loaded;
+            }
+        }
+    }
+
+    private void failed(Exception e) {
+        nextRefresh = ticker.getAsLong() + intervalNanos;
+        onFailure.accept(e);
+    }
+
+    /**
+     * Stops refreshing. The current value will still be supplied.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScheduledFuture<?> s = scheduled;
+        if (s != null) {
+            s.cancel(false);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (! super.equals(o)) return false;
+        RefreshingSupplier<?> that = (RefreshingSupplier<?>) o;
+        return interval.equals(that.interval) && executor.equals(that.executor);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + interval.hashCode();
+    }
+
+    private static final class Loaded<T> {
+        final long sequence;
+        final T value;
+
+        Loaded(long sequence, T value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A scope for a number of resources that are opened lazily, and closed together.
+ * <p>
+ * Resources are registered with {@link #open(CloseableSupplier)} or {@link #open(Supplier, ThrowAnyConsumer)}, which return memoizing suppliers. A resource is only created when such a supplier is used for the first time, and only resources that were actually created are closed when the arena is closed. They are closed in the reverse order of their creation, or, if the arena was created with an {@link Executor}, all in parallel.
+ * <pre>{@code
+ * try (ResourceArena arena = new ResourceArena()) {
+ *     Supplier<Connection> connection = arena.open(() -> dataSource.getConnection(), Connection::close);
+ *     Supplier<InputStream> input = arena.open(() -> Files.newInputStream(path), InputStream::close);
+ *     ...
+ * }
+ * }</pre>
+ * If closing fails for some of the resources, all others are closed anyway. The first exception is thrown, with the others added as suppressed exceptions.
+ * <p>
+ * Contrary to {@link Suppliers#memoize(CloseableSupplier)}, a {@link CloseableSupplier} that was never used is not closed.
+ *
+ * @since 1.18
+ */
+public final class ResourceArena implements AutoCloseable {
+
+    private final Executor parallel;
+    private final Deque<AutoCloseable> opened = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Creates an arena that closes its resources one by one, in the reverse order in which they were created.
+     */
+    public ResourceArena() {
+        this(null);
+    }
+
+    /**
+     * Creates an arena that closes its resources in parallel.
+     * @param parallel the executor on which the resources are closed. If {@code null}, they are closed one by one, in the reverse order in which they were created.
+     */
+    public ResourceArena(Executor parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Registers a {@link CloseableSupplier}. It is called at most once, and only closed when the arena is closed, and it was called.
+     * @param supplier the supplier of a resource
+     * @param <T> the type of the resource
+     * @return a memoizing supplier of the resource
+     */
+    public <T> UnwrappableSupplier<T, CloseableSupplier<T>> open(CloseableSupplier<T> supplier) {
+        return new ArenaSupplier<>(supplier, () -> {
+            T value = supplier.get();
+            register(supplier);
+            return value;
+        });
+    }
+
+    /**
+     * Registers a supplier of a resource, and how to close that resource. The supplier is called at most once, and the resource is closed when the arena is closed, if it was created.
+     * @param supplier the supplier of a resource
+     * @param closer how to close the resource
+     * @param <T> the type of the resource
+     * @return a memoizing supplier of the resource
+     */
+    public <T> UnwrappableSupplier<T, Supplier<T>> open(Supplier<T> supplier, ThrowAnyConsumer<? super T> closer) {
+        return new ArenaSupplier<>(supplier, () -> {
+            T value = supplier.get();
+            register(() -> closer.acceptThrows(value));
+            return value;
+        });
+    }
+
+    /**
+     * @return the number of resources that were created, and will be closed
+     */
+    public int size() {
+        return opened.size();
+    }
+
+    private void register(AutoCloseable closeable) {
+        // the resource was created already, so it must be added even if closed, to be closed below
+        opened.add(closeable);
+        if (closed) {
+            // closed concurrently, and may have missed this one
+            try {
+                closeSequentially();
+            } catch (Exception e) {
+                Suppliers.uncaught(e);
+            }
+            throw new IllegalStateException(this + " is closed");
+        }
+    }
+
+    /**
+     * Closes all resources that were created.
+     * @throws Exception the first exception that occurred while closing, with the other ones as suppressed
+     */
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        if (parallel == null) {
+            closeSequentially();
+        } else {
+            closeInParallel();
+        }
+    }
+
+    private void closeSequentially() throws Exception {
+        List<AutoCloseable> reversed = new ArrayList<>();
+        AutoCloseable closeable;
+        while ((closeable = opened.pollLast()) != null) {
+            reversed.add(closeable);
+        }
+        Suppliers.closeAll(reversed);
+    }
+
+    private void closeInParallel() throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        AutoCloseable closeable;
+        while ((closeable = opened.pollLast()) != null) {
+            final AutoCloseable c = closeable;
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    c.close();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, parallel));
+        }
+        Exception exception = null;
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException ce) {
+                Exception e = ce.getCause() instanceof Exception ? (Exception) ce.getCause() : ce;
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "arena of " + opened.size() + " resources" + (closed ? " (closed)" : "");
+    }
+
+    private final class ArenaSupplier<T, W extends Supplier<T>> extends Suppliers.SupplierWrapper<T, W> {
+        private final Suppliers.MemoizeSupplier<T> memoize;
+
+        ArenaSupplier(W wrapped, Supplier<T> opener) {
+            super(wrapped, "in arena");
+            this.memoize = new Suppliers.MemoizeSupplier<>(opener);
+        }
+
+        @Override
+        public T get() {
+            if (closed) {
+                throw new IllegalStateException(ResourceArena.this + " is closed");
+            }
+            return memoize.get();
+        }
+    }
+}
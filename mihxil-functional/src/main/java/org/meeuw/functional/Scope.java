@@ -0,0 +1,202 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A scope, e.g. of one request, in which {@link Suppliers#scoped(Supplier) scoped suppliers} are memoized. Values memoized in one scope are not visible in other scopes, and are dropped when the scope is closed.
+ * <pre>{@code
+ * static final Supplier<User> USER = Suppliers.scoped(() -> lookupUser());
+ *
+ * try (Scope scope = Scope.open()) {
+ *    ... USER.get() ... // evaluated at most once in this scope
+ * }
+ * }</pre>
+ * A scope is only current on the thread that opened it. It is not inherited by threads that are started from there, since those may be pooled, and would then leak the scope to unrelated tasks. Tasks that should run in the scope on other threads must be wrapped with {@link #wrap(Runnable)}, {@link #wrap(Callable)}, or {@link #executor(Executor)}.
+ * <p>
+ * A closed scope is not current any more, also not in tasks that were wrapped with it, so from there scoped suppliers are just called through. A value that is still being calculated when the scope is closed is closed when the calculation finishes, and is not supplied.
+ * <p>
+ * A scope may be closed by another thread than the one that opened it. The scope that was current before it becomes current again on the opening thread, but only the next time that thread looks for its current scope.
+ *
+ * @since 1.18
+ * @see Suppliers#scoped(Supplier)
+ */
+public final class Scope implements AutoCloseable {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final Scope previous;
+    private final Thread owner;
+    private final Map<Supplier<?>, Entry<?>> values = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    private Scope(Scope previous) {
+        this.previous = previous;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * Opens a new scope, and makes it the current one of this thread, until it is closed.
+     * @return the new scope
+     */
+    public static Scope open() {
+        Scope scope = new Scope(currentOrNull());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * @return the scope that is current for this thread, if there is one.
+     */
+    public static Optional<Scope> current() {
+        return Optional.ofNullable(currentOrNull());
+    }
+
+    static Scope currentOrNull() {
+        Scope scope = CURRENT.get();
+        if (scope == null || ! scope.closed) {
+            return scope;
+        }
+        // closed by another thread, which could not restore the scopes before it on this one
+        Thread thread = Thread.currentThread();
+        Scope restored = scope;
+        while (restored != null && restored.closed && restored.owner == thread) {
+            restored = restored.previous;
+        }
+        if (restored != scope) {
+            leave(restored);
+        }
+        return restored == null || restored.closed ? null : restored;
+    }
+
+    /**
+     * @throws IllegalStateException if the scope was closed before the value was calculated
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(Supplier<T> supplier) {
+        Entry<T> entry = (Entry<T>) values.computeIfAbsent(supplier, s -> new Entry<>(supplier));
+        T value = entry.get();
+        if (closed && entry.released.compareAndSet(false, true)) {
+            // closed while calculating, or inserted after closing, so close() did not see the value
+            values.remove(supplier, entry);
+            if (value instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) value).close();
+                } catch (Exception e) {
+                    Suppliers.uncaught(e);
+                }
+            }
+            throw new IllegalStateException(this + " is closed");
+        }
+        return value;
+    }
+
+    /**
+     * @param runnable a task
+     * @return a task that runs the given one with this scope as the current one
+     */
+    public Runnable wrap(Runnable runnable) {
+        return () -> {
+            Scope before = enter();
+            try {
+                runnable.run();
+            } finally {
+                leave(before);
+            }
+        };
+    }
+
+    /**
+     * @param callable a task
+     * @param <T> the type of the result of the task
+     * @return a task that calls the given one with this scope as the current one
+     */
+    public <T> Callable<T> wrap(Callable<T> callable) {
+        return () -> {
+            Scope before = enter();
+            try {
+                return callable.call();
+            } finally {
+                leave(before);
+            }
+        };
+    }
+
+    /**
+     * @param executor an executor
+     * @return an executor that executes its tasks on the given one, with this scope as the current one
+     */
+    public Executor executor(Executor executor) {
+        return command -> executor.execute(wrap(command));
+    }
+
+    private Scope enter() {
+        Scope before = CURRENT.get();
+        CURRENT.set(this);
+        return before;
+    }
+
+    private static void leave(Scope before) {
+        if (before == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(before);
+        }
+    }
+
+    /**
+     * @return the number of values memoized in this scope
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * @return whether this scope was closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the scope. The memoized values are dropped, and closed if they are {@link AutoCloseable}. If this scope is the current one of the calling thread, the scope that was current before it was opened becomes current again. If it is closed by another thread, that happens on the thread that opened it when it next looks for its current scope.
+     */
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        if (Thread.currentThread() == owner && CURRENT.get() == this) {
+            leave(previous);
+        }
+        List<Object> evaluated = new ArrayList<>();
+        for (Entry<?> entry : values.values()) {
+            if (entry.isEvaluated() && entry.released.compareAndSet(false, true)) {
+                evaluated.add(entry.get());
+            }
+        }
+        values.clear();
+        Suppliers.closeAll(evaluated);
+    }
+
+    @Override
+    public String toString() {
+        return "scope of " + values.size() + " values" + (closed ? " (closed)" : "");
+    }
+
+    /**
+     * A memoized value. It is closed by whoever releases it first: {@link #close()} if the value was calculated already, or otherwise {@link #get(Supplier)} once it finished calculating.
+     */
+    private static final class Entry<T> extends Suppliers.MemoizeSupplier<T> {
+        final AtomicBoolean released = new AtomicBoolean(false);
+
+        Entry(Supplier<T> supplier) {
+            super(supplier);
+        }
+    }
+}
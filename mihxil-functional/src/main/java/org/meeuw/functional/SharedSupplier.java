@@ -0,0 +1,221 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Shares one expensive closeable resource between several users, by reference counting.
+ * <p>
+ * Every user {@link #acquire() acquires} a handle, and closes it when done. The resource is created by calling the wrapped {@link CloseableSupplier} when the first handle is acquired, and the wrapped supplier is closed when the last handle is closed. So, no user tears down the resource for the others.
+ * <pre>{@code
+ * try (CloseableSupplier<Index> index = sharedIndex.acquire()) {
+ *     index.get().lookup(key);
+ * }
+ * }</pre>
+ * When a linger time is given, the resource is only closed when no handle was acquired again for that long, so that quickly re-acquiring it does not pay for creating it again.
+ * <p>
+ * Acquiring and closing a handle while the resource is in use by others is just a compare-and-set of the reference count. After the wrapped supplier is closed, it is called again to create the resource anew when another handle is acquired.
+ *
+ * @param <T> the type of the shared resource
+ * @since 1.18
+ * @see Suppliers#shared(CloseableSupplier)
+ * @see Suppliers#shared(CloseableSupplier, Duration, ScheduledExecutorService)
+ */
+public final class SharedSupplier<T> implements Supplier<CloseableSupplier<T>>, Unwrappable<CloseableSupplier<T>>, AutoCloseable {
+
+    private final CloseableSupplier<T> source;
+    private final Duration linger;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger references = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile T value;
+    private volatile boolean closed = false;
+    private ScheduledFuture<?> lingering;
+    private long generation = 0;
+
+    SharedSupplier(CloseableSupplier<T> source, Duration linger, ScheduledExecutorService scheduler) {
+        this.source = source;
+        this.linger = linger;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Acquires a handle to the shared resource, creating the resource if this is the first handle.
+     * @return a handle, which must be closed when it is not needed anymore
+     * @throws IllegalStateException if this is closed
+     */
+    public CloseableSupplier<T> acquire() {
+        int n;
+        while (! closed && (n = references.get()) > 0) {
+            if (references.compareAndSet(n, n + 1)) {
+                return new Handle(value);
+            }
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException(this + " is closed");
+            }
+            if (references.get() == 0) {
+                cancelLingering();
+                if (value == null) {
+                    value = Objects.requireNonNull(source.get(), () -> source + " supplied null");
+                }
+            }
+            references.incrementAndGet();
+            return new Handle(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Synonym for {@link #acquire()}
+     */
+    @Override
+    public CloseableSupplier<T> get() {
+        return acquire();
+    }
+
+    private void release() throws Exception {
+        int n;
+        while ((n = references.get()) > 1) {
+            if (references.compareAndSet(n, n - 1)) {
+                return;
+            }
+        }
+        lock.lock();
+        try {
+            if (references.decrementAndGet() == 0) {
+                if (closed || scheduler == null) {
+                    closeResource();
+                } else {
+                    final long scheduled = ++generation;
+                    lingering = scheduler.schedule(() -> expire(scheduled), linger.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expire(long scheduled) {
+        lock.lock();
+        try {
+            if (scheduled == generation && references.get() == 0) {
+                lingering = null;
+                closeResource();
+            }
+        } catch (Exception e) {
+            Suppliers.uncaught(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancelLingering() {
+        generation++;
+        if (lingering != null) {
+            lingering.cancel(false);
+            lingering = null;
+        }
+    }
+
+    /**
+     * Must be called with the lock held, and no references.
+     */
+    private void closeResource() throws Exception {
+        if (value != null) {
+            value = null;
+            source.close();
+        }
+    }
+
+    /**
+     * @return the number of handles that are currently acquired and not yet closed
+     */
+    public int getReferenceCount() {
+        return references.get();
+    }
+
+    /**
+     * @return whether the resource is currently created, i.e. in use or lingering
+     */
+    public boolean isOpen() {
+        return value != null;
+    }
+
+    /**
+     * The shared supplier of the resource
+     */
+    @Override
+    public CloseableSupplier<T> unwrap() {
+        return source;
+    }
+
+    /**
+     * Prevents new handles from being acquired. If no handles are in use, the resource is closed immediately, otherwise when the last handle is closed, ignoring the linger time.
+     */
+    @Override
+    public void close() throws Exception {
+        lock.lock();
+        try {
+            closed = true;
+            if (references.get() == 0) {
+                cancelLingering();
+                closeResource();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source + "(shared by " + references.get() + ")";
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<SharedSupplier.Handle, Object> RELEASED = AtomicReferenceFieldUpdater.newUpdater(SharedSupplier.Handle.class, Object.class, "value");
+
+    /**
+     * A handle to the shared resource. Closing it releases it. After that it can't be used anymore.
+     */
+    private final class Handle implements CloseableSupplier<T> {
+        volatile Object value;
+
+        Handle(T value) {
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get() {
+            Object v = value;
+            if (v == null) {
+                throw new IllegalStateException("Released " + SharedSupplier.this);
+            }
+            return (T) v;
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (RELEASED.getAndSet(this, null) != null) {
+                release();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "handle " + value + " of " + SharedSupplier.this;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes a fixed number of instances, 'stripes', of a supplied value. Every thread is assigned to one of them. So unlike a {@link ThreadLocal} based solution (like {@link Suppliers#perThread(Supplier)}), the number of instances is bounded, also if there are very many (e.g. virtual) threads. A good number of stripes is about the number of available processors.
+ * <p>
+ * Instances may be shared by several threads. {@link #get()} is only suitable for instances that are thread safe, but for which contention should be avoided. Instances which are not thread safe (like {@link java.security.MessageDigest} or {@link java.text.SimpleDateFormat}) can be used via {@link #apply(Function)}, which gives exclusive access to a stripe. If the stripe of the current thread is busy, other stripes are tried first.
+ *
+ * @param <T> the type of the value supplied
+ * @since 1.18
+ * @see Suppliers#striped(Supplier, int)
+ */
+public final class StripedSupplier<T> extends Suppliers.SupplierWrapper<T, Supplier<T>> implements UnwrappableCloseableSupplier<T, Supplier<T>> {
+
+    private final Stripe<T>[] stripes;
+    private final int mask;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    @SuppressWarnings("unchecked")
+    StripedSupplier(Supplier<T> wrapped, int stripes) {
+        super(wrapped, "striped " + stripes);
+        if (stripes < 1) {
+            throw new IllegalArgumentException("The number of stripes must be positive: " + stripes);
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = (Stripe<T>[]) new Stripe<?>[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe<>(wrapped);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return The instance of the stripe of the current thread. It may be shared with other threads.
+     */
+    @Override
+    public T get() {
+        return stripe(home()).get();
+    }
+
+    /**
+     * Applies a function to an instance, while no other thread can use that same instance via this method.
+     * @param function the function to apply on the instance
+     * @param <R> the type of the result of the function
+     * @return the result of the function
+     */
+    public <R> R apply(Function<? super T, ? extends R> function) {
+        int home = home();
+        for (int i = 0; i <= mask; i++) {
+            Stripe<T> stripe = stripe(home + i);
+            if (stripe.lock.tryLock()) {
+                try {
+                    checkOpen();
+                    return function.apply(stripe.get());
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+        Stripe<T> stripe = stripe(home);
+        stripe.lock.lock();
+        try {
+            // close() may have happened while waiting for the lock
+            checkOpen();
+            return function.apply(stripe.get());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of stripes, which is the number of requested stripes rounded up to a power of 2
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    private Stripe<T> stripe(int index) {
+        checkOpen();
+        return stripes[index & mask];
+    }
+
+    private void checkOpen() {
+        if (closed.get()) {
+            throw new IllegalStateException(this + " is closed");
+        }
+    }
+
+    private static int home() {
+        long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Closes the instances that were created, if they are {@link AutoCloseable}. An instance that is in use via {@link #apply(Function)} is closed after that. After this, the supplier can't be used anymore, and closing again has no effect.
+     */
+    @Override
+    public void close() throws Exception {
+        if (! closed.compareAndSet(false, true)) {
+            return;
+        }
+        List<Object> created = new ArrayList<>();
+        for (Stripe<T> stripe : stripes) {
+            // waits for a function that is using it. Later ones see that this is closed.
+            stripe.lock.lock();
+            try {
+                if (stripe.isEvaluated()) {
+                    created.add(stripe.get());
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        Suppliers.closeAll(created);
+    }
+
+    /**
+     * Two instances are equal if they wrap equal suppliers, and have the same number of stripes.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (! super.equals(o)) return false;
+        StripedSupplier<?> that = (StripedSupplier<?>) o;
+        return stripes.length == that.stripes.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + stripes.length;
+    }
+
+    private static final class Stripe<T> extends Suppliers.MemoizeSupplier<T> {
+        final ReentrantLock lock = new ReentrantLock();
+
+        Stripe(Supplier<T> supplier) {
+            super(supplier);
+        }
+    }
+}
@@ -1,7 +1,22 @@
 package org.meeuw.functional;
 
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
@@ -56,6 +71,435 @@ public class Suppliers {
         return new MemoizeSupplier<T>(supplier);
     }
 
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized, but only for the given duration. The first call after that will call the wrapped supplier again.
+     * <p>
+     * Only one thread at a time will reload the value. Other threads will meanwhile just receive the previous value.
+     *
+     * @param supplier the supplier to memoize
+     * @param ttl how long a supplied value remains valid
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier at most once per {@code ttl}
+     * @since 1.18
+     * @see #memoize(Supplier, Duration, Duration)
+     */
+    public static <T> UnwrappableSupplier<T, Supplier<T>> memoize(Supplier<T> supplier, Duration ttl) {
+        return memoize(supplier, ttl, null);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized, but only for the given duration. The first call after that will call the wrapped supplier again.
+     * <p>
+     * Only one thread at a time will reload the value. Other threads will meanwhile receive the previous value, as long as it expired no longer than {@code maxStaleness} ago. If it is staler than that, they will wait for the reload.
+     *
+     * @param supplier the supplier to memoize
+     * @param ttl how long a supplied value remains valid
+     * @param maxStaleness how long after expiry the previous value may still be supplied while another thread is reloading it. {@code null} means unlimited.
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier at most once per {@code ttl}
+     * @throws IllegalArgumentException if {@code ttl} or {@code maxStaleness} is zero or negative
+     * @since 1.18
+     */
+    public static <T> UnwrappableSupplier<T, Supplier<T>> memoize(Supplier<T> supplier, Duration ttl, Duration maxStaleness) {
+        return new ExpiringMemoizeSupplier<>(supplier, ttl, maxStaleness, System::nanoTime);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized after the first call, and then published as a constant {@link java.lang.invoke.MethodHandle}, which the JIT can treat as a true constant, if it is stored in a {@code static final} field.
+     *
+     * @param supplier the supplier to memoize
+     * @param <T> The type of the objects to supply
+     * @return a new {@link ConstantSupplier} that uses the argument supplier only once
+     * @since 1.18
+     */
+    public static <T> ConstantSupplier<T> constant(Supplier<T> supplier) {
+        return new ConstantSupplier<>(supplier);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized per {@link Scope}, e.g. per request. If there is no current scope, the supplier is just called.
+     *
+     * @param supplier the supplier to memoize
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier only once per scope
+     * @since 1.18
+     */
+    public static <T> UnwrappableSupplier<T, Supplier<T>> scoped(Supplier<T> supplier) {
+        return new SupplierWrapper<T, Supplier<T>>(supplier, "scoped") {
+            @Override
+            public T get() {
+                Scope scope = Scope.currentOrNull();
+                return scope == null ? wrapped.get() : scope.get(wrapped);
+            }
+        };
+    }
+
+    /**
+     * Wrap a given supplier, which will be called asynchronously on the given executor. The first call to {@link Supplier#get()} starts the calculation, and every call returns the same {@link CompletableFuture}, so callers never have to wait for it.
+     * <p>
+     * Closing the resulting {@link AsyncSupplier} cancels the calculation if it is still in progress, and otherwise closes the value if it is {@link AutoCloseable}. Note that the future is shared, so cancelling it cancels it for every caller.
+     *
+     * @param supplier the supplier to memoize
+     * @param executor the executor on which the supplier is called
+     * @param <T> The type of the objects to supply
+     * @return a new {@link AsyncSupplier} that uses the argument supplier only once
+     * @since 1.18
+     */
+    public static <T> AsyncSupplier<T> memoizeAsync(Supplier<T> supplier, Executor executor) {
+        return new AsyncMemoizeSupplier<>(supplier, executor);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized, and refreshed in the background. Callers are never waiting for a refresh, they just receive the current value.
+     * <p>
+     * The first call to {@link Supplier#get()} after {@code interval} since the last (attempted) refresh triggers a refresh on the given executor. If a refresh fails, the last good value remains, and the exception is offered to the current thread's {@link Thread.UncaughtExceptionHandler}.
+     * <p>
+     * Closing the resulting supplier stops the refreshes.
+     *
+     * @param supplier the supplier to memoize
+     * @param interval the time after which a value is refreshed
+     * @param executor the executor on which refreshes happen
+     * @param <T> The type of the objects to supply
+     * @return a new supplier, that is refreshed in the background
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @since 1.18
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<T>> refreshing(Supplier<T> supplier, Duration interval, Executor executor) {
+        return refreshing(supplier, interval, executor, Suppliers::uncaught);
+    }
+
+    /**
+     * As {@link #refreshing(Supplier, Duration, Executor)}, but with a handler for failed refreshes.
+     *
+     * @param supplier the supplier to memoize
+     * @param interval the time after which a value is refreshed
+     * @param executor the executor on which refreshes happen
+     * @param onFailure what to do with the exception if a refresh fails. The last good value is kept anyway.
+     * @param <T> The type of the objects to supply
+     * @return a new supplier, that is refreshed in the background
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @since 1.18
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<T>> refreshing(Supplier<T> supplier, Duration interval, Executor executor, Consumer<? super Exception> onFailure) {
+        return new RefreshingSupplier<>(supplier, interval, executor, onFailure, System::nanoTime);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized, and periodically refreshed on the given {@link ScheduledExecutorService}, with {@code interval} between the refreshes.
+     * <p>
+     * Contrary to {@link #refreshing(Supplier, Duration, Executor)}, refreshes are not triggered by calls to {@link Supplier#get()}. Closing the resulting supplier cancels the scheduled refreshes.
+     *
+     * @param supplier the supplier to memoize
+     * @param interval the delay between two refreshes
+     * @param scheduler the scheduler on which refreshes happen
+     * @param <T> The type of the objects to supply
+     * @return a new supplier, that is refreshed in the background
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @since 1.18
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<T>> refreshing(Supplier<T> supplier, Duration interval, ScheduledExecutorService scheduler) {
+        return refreshing(supplier, interval, scheduler, Suppliers::uncaught);
+    }
+
+    /**
+     * As {@link #refreshing(Supplier, Duration, ScheduledExecutorService)}, but with a handler for failed refreshes.
+     *
+     * @param supplier the supplier to memoize
+     * @param interval the delay between two refreshes
+     * @param scheduler the scheduler on which refreshes happen
+     * @param onFailure what to do with the exception if a refresh fails. The last good value is kept anyway.
+     * @param <T> The type of the objects to supply
+     * @return a new supplier, that is refreshed in the background
+     * @throws IllegalArgumentException if {@code interval} is zero or negative
+     * @since 1.18
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<T>> refreshing(Supplier<T> supplier, Duration interval, ScheduledExecutorService scheduler, Consumer<? super Exception> onFailure) {
+        return new RefreshingSupplier<>(supplier, interval, scheduler, onFailure, System::nanoTime).schedule(scheduler);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized using a {@link SoftReference}, so the garbage collector may reclaim it when memory is low. In that case it is recalculated on the next call.
+     * <p>
+     * This is useful for large values that can always be recalculated.
+     *
+     * @param supplier the supplier to memoize
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier only if no value is available
+     * @since 1.18
+     */
+    public static <T> ReclaimableSupplier<T> softMemoize(Supplier<T> supplier) {
+        return new ReferenceMemoizeSupplier<>(supplier, SoftReference::new, "soft memoize");
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized using a {@link WeakReference}, so the value is only memoized as long as it is strongly reachable by other means. Otherwise, it is recalculated on the next call.
+     *
+     * @param supplier the supplier to memoize
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier only if no value is available
+     * @since 1.18
+     * @see #softMemoize(Supplier)
+     */
+    public static <T> ReclaimableSupplier<T> weakMemoize(Supplier<T> supplier) {
+        return new ReferenceMemoizeSupplier<>(supplier, WeakReference::new, "weak memoize");
+    }
+
+    /**
+     * Creates a bounded {@link Pool} of objects created by the given factory. Instances are leased as {@link CloseableSupplier}s, and returned to the pool when these are closed.
+     *
+     * @param factory the supplier of new instances
+     * @param maxSize the maximal number of instances, leased or idle. If that many are leased, {@link Pool#get()} waits until one is returned.
+     * @param <T> the type of the pooled objects
+     * @return a new pool
+     * @since 1.18
+     */
+    public static <T> Pool<T> pooled(Supplier<T> factory, int maxSize) {
+        return pooled(factory, maxSize, t -> true, null);
+    }
+
+    /**
+     * Creates a bounded {@link Pool} of objects created by the given factory. Instances are leased as {@link CloseableSupplier}s, and returned to the pool when these are closed.
+     *
+     * @param factory the supplier of new instances
+     * @param maxSize the maximal number of instances, leased or idle. If that many are leased, {@link Pool#get()} waits until one is returned.
+     * @param validator idle instances are only leased again if they are valid according to this predicate. Otherwise, they are discarded.
+     * @param maxIdle instances that were idle for longer than this are discarded. {@code null} for no limit.
+     * @param <T> the type of the pooled objects
+     * @return a new pool
+     * @since 1.18
+     */
+    public static <T> Pool<T> pooled(Supplier<T> factory, int maxSize, Predicate<? super T> validator, Duration maxIdle) {
+        return new Pool<>(factory, maxSize, validator, maxIdle, System::nanoTime);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized per thread. This is useful for objects that are not thread safe, like {@link java.security.MessageDigest} or {@link java.text.SimpleDateFormat}.
+     * <p>
+     * Closing the resulting supplier closes all values that were created (if they are {@link AutoCloseable}), for all threads.
+     * <p>
+     * Since there will be an instance for every thread, this is not suitable when there are very many threads, like virtual threads. Consider {@link #striped(Supplier)} then.
+     *
+     * @param supplier the supplier to memoize
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier once per thread
+     * @since 1.18
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<T>> perThread(Supplier<T> supplier) {
+        return new PerThreadSupplier<>(supplier);
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized in a number of stripes equal to the number of available processors.
+     *
+     * @param supplier the supplier to memoize
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier once per stripe
+     * @since 1.18
+     * @see #striped(Supplier, int)
+     */
+    public static <T> StripedSupplier<T> striped(Supplier<T> supplier) {
+        return striped(supplier, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Wrap a given supplier. The result of the suppletion is memoized in a fixed number of stripes, to which threads are assigned. Contrary to {@link #perThread(Supplier)}, the number of instances remains bounded when there are very many threads.
+     *
+     * @param supplier the supplier to memoize
+     * @param stripes the desired number of stripes. This will be rounded up to a power of 2.
+     * @param <T> The type of the objects to supply
+     * @return a new supplier that uses the argument supplier once per stripe
+     * @since 1.18
+     * @see StripedSupplier#apply(Function)
+     */
+    public static <T> StripedSupplier<T> striped(Supplier<T> supplier, int stripes) {
+        return new StripedSupplier<>(supplier, stripes);
+    }
+
+    /**
+     * Creates a lazily evaluated, memoized supplier per key. The loader is called at most once per key, also under concurrency, and without blocking the loads of other keys.
+     *
+     * @param loader the function to load the value for a key
+     * @param <K> the type of the keys
+     * @param <T> the type of the values
+     * @return a new, unbounded, {@link KeyedSupplier}
+     * @since 1.18
+     */
+    public static <K, T> KeyedSupplier<K, T> keyed(Function<K, T> loader) {
+        return keyed(loader, Integer.MAX_VALUE);
+    }
+
+    /**
+     * As {@link #keyed(Function)}, but the number of keys is bounded. If it is exceeded, the least recently used keys (approximately) are evicted.
+     *
+     * @param loader the function to load the value for a key
+     * @param maxSize the maximal number of keys
+     * @param <K> the type of the keys
+     * @param <T> the type of the values
+     * @return a new {@link KeyedSupplier}
+     * @since 1.18
+     */
+    public static <K, T> KeyedSupplier<K, T> keyed(Function<K, T> loader, int maxSize) {
+        return new KeyedSupplier<>(loader, maxSize);
+    }
+
+    /**
+     * Wrap a given {@link ThrowingSupplier}. The result of the suppletion is memoized after the first successful call.
+     * <p>
+     * If the supplier throws an exception, that is memoized too, for a backoff period. During that period, callers get the same exception, without calling the supplier again. After that, one caller retries, while the others still get the exception. Every consecutive failure doubles the backoff period, up to {@code maxBackoff}.
+     * <p>
+     * This avoids that every caller retries an expensive initialization that fails anyway.
+     *
+     * @param supplier the supplier to memoize
+     * @param initialBackoff how long a first failure is memoized
+     * @param maxBackoff the maximal period a failure is memoized
+     * @param <T> The type of the objects to supply
+     * @param <E> The type of the exception the supplier may throw
+     * @return a new supplier that uses the argument supplier only once if it succeeds, and otherwise only once per backoff period
+     * @throws IllegalArgumentException if {@code initialBackoff} is zero or negative, or {@code maxBackoff} is shorter than {@code initialBackoff}
+     * @since 1.18
+     */
+    public static <T, E extends Exception> ThrowingSupplier<T, E> memoizeWithBackoff(ThrowingSupplier<T, E> supplier, Duration initialBackoff, Duration maxBackoff) {
+        return new BackoffMemoizeSupplier<>(supplier, initialBackoff, maxBackoff, System::nanoTime);
+    }
+
+    /**
+     * Combines a number of equivalent sources, e.g. replicas, to reduce tail latency. The first source is called, and if it didn't answer within {@code hedgeDelay}, the next one is called too, and so on. A failing source makes the next one called immediately.
+     * <p>
+     * The first successful result is supplied. The other calls are cancelled (interrupting them), and their results, if they arrive anyway, are closed if they are {@link AutoCloseable}. If all sources fail, the first exception is thrown, with the others as suppressed exceptions.
+     *
+     * @param sources the sources to call, in order of preference
+     * @param hedgeDelay how long to wait for a source before calling the next one too
+     * @param executor the executor on which the sources are called
+     * @param <T> The type of the objects to supply
+     * @param <E> The type of the exception the sources may throw
+     * @return a new supplier, calling the sources on every call
+     * @since 1.18
+     */
+    public static <T, E extends Exception> ThrowingSupplier<T, E> hedged(List<ThrowingSupplier<T, E>> sources, Duration hedgeDelay, Executor executor) {
+        return new HedgedSupplier<>(sources, hedgeDelay, executor);
+    }
+
+    /**
+     * Wrap a given supplier, of which the values are prefetched in the background, on the {@link ForkJoinPool#commonPool() common pool}. The buffer is refilled when it is half empty.
+     *
+     * @param source the supplier of the values
+     * @param capacity the number of values to prefetch
+     * @param <T> The type of the objects to supply
+     * @return a new supplier, supplying the values of the source
+     * @since 1.18
+     * @see #prefetching(Supplier, int, int, Executor)
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<T>> prefetching(Supplier<T> source, int capacity) {
+        return prefetching(source, capacity, capacity / 2, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Wrap a given supplier, of which the values are prefetched in the background. This is useful if {@link Supplier#get()} is called very often, and the source is relatively expensive, like for ids, random tokens or buffers.
+     * <p>
+     * The values are kept in a ring buffer, which is filled by one background task at a time. The supplied values are taken from that buffer lock-free. If it happens to be empty, the source is called directly. So the source may be called by several threads at the same time, and must be thread safe.
+     * <p>
+     * The source must not supply {@code null}: that makes {@link Supplier#get()} of the resulting supplier, or the background refill, fail with a {@link NullPointerException}.
+     * <p>
+     * Closing the resulting supplier stops prefetching.
+     *
+     * @param source the supplier of the values
+     * @param capacity the number of values to prefetch. This is rounded up to a power of 2.
+     * @param lowWaterMark when the number of prefetched values drops to this, a refill is started
+     * @param executor the executor on which the refills happen
+     * @param <T> The type of the objects to supply
+     * @return a new supplier, supplying the values of the source
+     * @since 1.18
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<T>> prefetching(Supplier<T> source, int capacity, int lowWaterMark, Executor executor) {
+        return PrefetchingSupplier.of(source, capacity, lowWaterMark, executor);
+    }
+
+    /**
+     * Like {@link #prefetching(Supplier, int, int, Executor)}, but the source supplies a batch of values at once, so the cost of producing them can be amortized.
+     * <p>
+     * If the buffer happens to be empty, the caller fills it with a new batch itself, or, if a refill is in progress already, waits for that.
+     * <p>
+     * The batches must not contain {@code null}.
+     *
+     * @param source the supplier of batches of values
+     * @param capacity the number of values to prefetch. This is rounded up to a power of 2.
+     * @param lowWaterMark when the number of prefetched values drops to this, a refill is started
+     * @param executor the executor on which the refills happen
+     * @param <T> The type of the objects to supply
+     * @return a new supplier, supplying the values of the batches of the source, one by one
+     * @since 1.18
+     */
+    public static <T> UnwrappableCloseableSupplier<T, Supplier<? extends List<T>>> prefetchingBatches(Supplier<? extends List<T>> source, int capacity, int lowWaterMark, Executor executor) {
+        return PrefetchingSupplier.ofBatches(source, capacity, lowWaterMark, executor);
+    }
+
+    /**
+     * Evaluates a number of (memoizing) suppliers concurrently, e.g. at startup, so that the first requests don't have to wait for them one after another.
+     *
+     * @param suppliers the suppliers to evaluate
+     * @param executor the executor on which to evaluate them
+     * @return a report with the time every supplier took
+     * @since 1.18
+     * @see WarmUp for dependencies between the suppliers
+     */
+    public static WarmUp.Report warmUp(Collection<? extends UnwrappableSupplier<?, ?>> suppliers, Executor executor) {
+        return warmUp(suppliers, executor, null);
+    }
+
+    /**
+     * As {@link #warmUp(Collection, Executor)}, but doesn't wait longer than the given deadline.
+     * @param suppliers the suppliers to evaluate
+     * @param executor the executor on which to evaluate them
+     * @param deadline how long to wait at most. {@code null} means unlimited.
+     * @return a report with the time every supplier took, and which ones did not finish
+     * @since 1.18
+     */
+    public static WarmUp.Report warmUp(Collection<? extends UnwrappableSupplier<?, ?>> suppliers, Executor executor, Duration deadline) {
+        WarmUp warmUp = new WarmUp();
+        for (UnwrappableSupplier<?, ?> supplier : suppliers) {
+            warmUp.register(supplier);
+        }
+        return warmUp.run(executor, deadline);
+    }
+
+    /**
+     * Shares a closeable resource between several users. Each user acquires a handle, and closes that when done. The resource is created on the first acquire, and closed when the last handle is closed.
+     *
+     * @param supplier the supplier of the resource. It is closed when the resource is not used any more, and called again when it is needed again.
+     * @param <T> the type of the shared resource
+     * @return a new {@link SharedSupplier}
+     * @since 1.18
+     */
+    public static <T> SharedSupplier<T> shared(CloseableSupplier<T> supplier) {
+        return new SharedSupplier<>(supplier, null, null);
+    }
+
+    /**
+     * As {@link #shared(CloseableSupplier)}, but the resource is closed only after it was not used for the given linger time.
+     *
+     * @param supplier the supplier of the resource
+     * @param linger how long the resource remains open after the last handle was closed
+     * @param scheduler the scheduler used to close it after the linger time
+     * @param <T> the type of the shared resource
+     * @return a new {@link SharedSupplier}
+     * @since 1.18
+     */
+    public static <T> SharedSupplier<T> shared(CloseableSupplier<T> supplier, Duration linger, ScheduledExecutorService scheduler) {
+        return new SharedSupplier<>(supplier, Objects.requireNonNull(linger), Objects.requireNonNull(scheduler));
+    }
+
+    /**
+     * Wrap a given supplier. The result is memoized, and the other tracked suppliers it reads are recorded as its dependencies, so that invalidating one of those invalidates it too.
+     *
+     * @param supplier the supplier to memoize
+     * @param <T> The type of the objects to supply
+     * @return a new {@link TrackedSupplier}
+     * @since 1.18
+     */
+    public static <T> TrackedSupplier<T> tracked(Supplier<T> supplier) {
+        return new TrackedSupplier<>(supplier);
+    }
+
     /**
      * Wrap a given supplier. The result of the suppletion is memoized after the first call. Subsequent calls will give the same value, without calling the supplier again. The result is als {@link CloseableSupplier}
      *
@@ -93,6 +537,50 @@ public class Suppliers {
         return new CloseableSupplierWrapper<>(supplier, consumerWrapper, "wrapper");
     }
 
+    /**
+     * Closes all given objects that are {@link AutoCloseable}, and removes them from the collection. If closing fails, the first exception is thrown after trying all others, to which the other exceptions are added as suppressed.
+     */
+    static void closeAll(Iterable<?> values) throws Exception {
+        Exception exception = null;
+        for (Iterator<?> i = values.iterator(); i.hasNext(); ) {
+            Object value = i.next();
+            i.remove();
+            if (value instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) value).close();
+                } catch (Exception e) {
+                    if (exception == null) {
+                        exception = e;
+                    } else {
+                        exception.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * @return the duration in nanoseconds, or {@link Long#MAX_VALUE} if it is too long for that
+     */
+    static long toNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Offers an exception that happened in the background to the {@link Thread#getUncaughtExceptionHandler() uncaught exception handler} of the current thread.
+     */
+    static void uncaught(Exception e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
     /**
      * Extension of {@link Wrapper} that implements {@link Supplier}.
      * @param <T> the type of the value supplied
@@ -142,6 +630,7 @@ public class Suppliers {
     protected static class CloseableSupplierWrapper<T> extends SupplierWrapper<T, Supplier<T>> implements UnwrappableCloseableSupplier<T, Supplier<T>>  {
 
         ThrowAnyConsumer<Supplier<T>> closer;
+        private final LeakDetector.Tracked tracked;
 
         /**
          * @param closer What must happen on close. A Consume the wrapped object.
@@ -149,6 +638,7 @@ public class Suppliers {
         CloseableSupplierWrapper(Supplier<T> wrapped, ThrowAnyConsumer<Supplier<T>> closer, String reason) {
             super(wrapped, reason);
             this.closer = closer;
+            this.tracked = LeakDetector.track(this, wrapped, closer);
         }
         @Override
         public T get() {
@@ -156,33 +646,62 @@ public class Suppliers {
         }
         @Override
         public void close() throws Exception {
-            closer.acceptThrows(wrapped);
+            try {
+                closer.acceptThrows(wrapped);
+            } finally {
+                if (tracked != null) {
+                    tracked.close();
+                }
+            }
         }
 
     }
 
+    /**
+     * Memoizes the value of a supplier.
+     * <p>
+     * Once evaluated, {@link #get()} is just a volatile read. The first evaluation is guarded by a {@link ReentrantLock} rather than by {@code synchronized}, so waiting threads don't pin their carrier thread when they are virtual.
+     * <p>
+     * {@link #equals(Object)} does not evaluate. Two instances are equal if they wrap equal suppliers, and either both are not yet evaluated, or both evaluated to equal values.
+     * @param <T> the type of the value supplied
+     */
     protected static class MemoizeSupplier<T> extends SupplierWrapper<T, Supplier<T>> {
 
-        transient T value;
+        static final Object UNSET = new Object();
+
+        private final ReentrantLock lock = new ReentrantLock();
 
-        transient volatile boolean evaluated = false;
+        transient volatile Object value = UNSET;
 
         MemoizeSupplier(Supplier<T> supplier) {
             super(supplier, "memoize");
         }
 
-
+        @SuppressWarnings("unchecked")
         @Override
         public T get() {
-            if (! evaluated) {
-                synchronized (this) {
-                    if (! evaluated) {
-                        value = wrapped.get();
-                        evaluated = true;
+            Object result = value;
+            if (result == UNSET) {
+                lock.lock();
+                try {
+                    result = value;
+                    if (result == UNSET) {
+                        result = wrapped.get();
+                        value = result;
                     }
+                } finally {
+                    lock.unlock();
                 }
             }
-            return value;
+            return (T) result;
+        }
+
+        /**
+         * @return whether the wrapped supplier was called already, and its value is memoized
+         * @since 1.18
+         */
+        public boolean isEvaluated() {
+            return value != UNSET;
         }
 
         @Override
@@ -190,14 +709,109 @@ public class Suppliers {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             MemoizeSupplier<?> that = (MemoizeSupplier<?>) o;
-            return Objects.equals(wrapped, that.wrapped) && Objects.equals(get(), that.get());
+            return Objects.equals(wrapped, that.wrapped) && Objects.equals(value, that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(wrapped);
+        }
+
+    }
+
+    /**
+     * Memoizes the value of a supplier for a certain duration.
+     * @param <T> the type of the value supplied
+     * @since 1.18
+     */
+    protected static class ExpiringMemoizeSupplier<T> extends SupplierWrapper<T, Supplier<T>> {
+
+        private final Duration ttl;
+        private final Duration maxStaleness;
+        private final long ttlNanos;
+        private final long maxStalenessNanos;
+        private final LongSupplier ticker;
+        private final AtomicBoolean reloading = new AtomicBoolean(false);
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private transient volatile Expiring<T> current;
+
+        ExpiringMemoizeSupplier(Supplier<T> supplier, Duration ttl, Duration maxStaleness, LongSupplier ticker) {
+            super(supplier, "memoize " + ttl);
+            if (ttl.isNegative() || ttl.isZero()) {
+                throw new IllegalArgumentException("ttl must be positive: " + ttl);
+            }
+            if (maxStaleness != null && (maxStaleness.isNegative() || maxStaleness.isZero())) {
+                throw new IllegalArgumentException("maxStaleness must be positive: " + maxStaleness);
+            }
+            this.ttl = ttl;
+            this.maxStaleness = maxStaleness;
+            this.ttlNanos = toNanos(ttl);
+            this.maxStalenessNanos = maxStaleness == null ? Long.MAX_VALUE : toNanos(maxStaleness);
+            this.ticker = ticker;
+        }
+
+        @Override
+        public T get() {
+            Expiring<T> c = current;
+            if (c != null) {
+                long age = ticker.getAsLong() - c.loaded;
+                if (age < ttlNanos) {
+                    return c.value;
+                }
+                if (age - ttlNanos < maxStalenessNanos) {
+                    if (reloading.compareAndSet(false, true)) {
+                        try {
+                            return load();
+                        } finally {
+                            reloading.set(false);
+                        }
+                    }
+                    return c.value;
+                }
+            }
+            return load();
+        }
+
+        private T load() {
+            lock.lock();
+            try {
+                Expiring<T> c = current;
+                if (c != null && ticker.getAsLong() - c.loaded < ttlNanos) {
+                    return c.value;
+                }
+                T value = wrapped.get();
+                current = new Expiring<>(value, ticker.getAsLong());
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (! super.equals(o)) return false;
+            ExpiringMemoizeSupplier<?> that = (ExpiringMemoizeSupplier<?>) o;
+            return ttl.equals(that.ttl) && Objects.equals(maxStaleness, that.maxStaleness);
         }
 
         @Override
         public int hashCode() {
-            return Objects.hashCode(wrapped.hashCode());
+            return 31 * super.hashCode() + ttl.hashCode();
         }
 
+        /**
+         * Durations that are too long to express in nanoseconds, like {@link java.time.temporal.ChronoUnit#FOREVER}, are practically infinite.
+         */
+        private static class Expiring<T> {
+            final T value;
+            final long loaded;
+
+            Expiring(T value, long loaded) {
+                this.value = value;
+                this.loaded = loaded;
+            }
+        }
     }
 
     protected static class Always<W> extends Wrapper<W> implements Supplier<W> {
@@ -0,0 +1,185 @@
+package org.meeuw.functional;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A memoizing supplier that knows which other tracked suppliers it was derived from.
+ * <p>
+ * When a {@code TrackedSupplier} is read during the evaluation of another one, that is recorded as a dependency. {@link #invalidate() Invalidating} a supplier marks it, and everything that was (transitively) derived from it, dirty. Dirty suppliers are recalculated lazily, on their next {@link #get()}. Other suppliers keep their value.
+ * <pre>{@code
+ * TrackedSupplier<Config> config = Suppliers.tracked(this::parseConfig);
+ * TrackedSupplier<Rules> rules = Suppliers.tracked(() -> compile(config.get()));
+ * TrackedSupplier<Table> table = Suppliers.tracked(() -> tableFor(rules.get()));
+ * ...
+ * config.invalidate(); // rules and table will be recalculated too, when needed
+ * }</pre>
+ * Dependencies are recorded anew on every evaluation, so they may differ per evaluation. Only reads of other {@code TrackedSupplier}s are recorded, not of other (memoizing) suppliers.
+ * <p>
+ * If a dependency is invalidated while a value is being calculated, the calculated value is returned, but not memoized.
+ * <p>
+ * A supplier refers to its dependencies strongly, but to its dependants only weakly. So a derived supplier that is not used anymore can be garbage collected, even if the suppliers it was derived from live on.
+ *
+ * @param <T> the type of the value supplied
+ * @since 1.18
+ * @see Suppliers#tracked(Supplier)
+ */
+public final class TrackedSupplier<T> extends Suppliers.SupplierWrapper<T, Supplier<T>> {
+
+    private static final ThreadLocal<TrackedSupplier<?>> EVALUATING = new ThreadLocal<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong version = new AtomicLong();
+    private final Dependants dependants = new Dependants();
+    private final Set<TrackedSupplier<?>> dependencies = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private transient volatile Object value = Suppliers.MemoizeSupplier.UNSET;
+
+    TrackedSupplier(Supplier<T> wrapped) {
+        super(wrapped, "tracked");
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get() {
+        TrackedSupplier<?> dependant = EVALUATING.get();
+        if (dependant != null && dependant != this) {
+            dependants.add(dependant);
+            dependant.dependencies.add(this);
+        }
+        Object v = value;
+        if (v != Suppliers.MemoizeSupplier.UNSET) {
+            return (T) v;
+        }
+        if (lock.isHeldByCurrentThread()) {
+            throw new IllegalStateException(this + " depends on itself");
+        }
+        lock.lock();
+        try {
+            v = value;
+            if (v != Suppliers.MemoizeSupplier.UNSET) {
+                return (T) v;
+            }
+            return evaluate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private T evaluate() {
+        final long before = version.get();
+        synchronized (dependencies) {
+            for (TrackedSupplier<?> dependency : dependencies) {
+                dependency.dependants.remove(this);
+            }
+            dependencies.clear();
+        }
+        final TrackedSupplier<?> previous = EVALUATING.get();
+        EVALUATING.set(this);
+        final T result;
+        try {
+            result = wrapped.get();
+        } finally {
+            if (previous == null) {
+                EVALUATING.remove();
+            } else {
+                EVALUATING.set(previous);
+            }
+        }
+        value = result;
+        if (version.get() != before) {
+            // invalidated meanwhile
+            value = Suppliers.MemoizeSupplier.UNSET;
+        }
+        return result;
+    }
+
+    /**
+     * Marks this supplier, and all suppliers that were derived from it, dirty. They will be recalculated on their next {@link #get()}.
+     */
+    public void invalidate() {
+        final Set<TrackedSupplier<?>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<TrackedSupplier<?>> todo = new ArrayDeque<>();
+        todo.add(this);
+        TrackedSupplier<?> next;
+        while ((next = todo.poll()) != null) {
+            if (visited.add(next)) {
+                next.version.incrementAndGet();
+                next.value = Suppliers.MemoizeSupplier.UNSET;
+                next.dependants.addTo(todo);
+            }
+        }
+    }
+
+    /**
+     * @return whether the value is currently memoized, so {@link #get()} will not recalculate it
+     */
+    public boolean isEvaluated() {
+        return value != Suppliers.MemoizeSupplier.UNSET;
+    }
+
+    /**
+     * @return the tracked suppliers that were read during the last evaluation of this one
+     */
+    public Set<TrackedSupplier<?>> getDependencies() {
+        synchronized (dependencies) {
+            return copy(dependencies);
+        }
+    }
+
+    /**
+     * @return the tracked suppliers that read this one during their last evaluation
+     */
+    public Set<TrackedSupplier<?>> getDependants() {
+        Set<TrackedSupplier<?>> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        dependants.addTo(result);
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static Set<TrackedSupplier<?>> copy(Set<TrackedSupplier<?>> set) {
+        Set<TrackedSupplier<?>> result = Collections.newSetFromMap(new IdentityHashMap<>());
+        result.addAll(set);
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Weak references to the dependants, by identity. References of dependants that were garbage collected are removed whenever the list is walked.
+     */
+    private static final class Dependants {
+        private final List<WeakReference<TrackedSupplier<?>>> references = new ArrayList<>();
+
+        synchronized void add(TrackedSupplier<?> dependant) {
+            for (Iterator<WeakReference<TrackedSupplier<?>>> i = references.iterator(); i.hasNext(); ) {
+                TrackedSupplier<?> d = i.next().get();
+                if (d == dependant) {
+                    return;
+                }
+                if (d == null) {
+                    i.remove();
+                }
+            }
+            references.add(new WeakReference<>(dependant));
+        }
+
+        synchronized void remove(TrackedSupplier<?> dependant) {
+            references.removeIf(r -> {
+                TrackedSupplier<?> d = r.get();
+                return d == null || d == dependant;
+            });
+        }
+
+        synchronized void addTo(Collection<TrackedSupplier<?>> collection) {
+            for (Iterator<WeakReference<TrackedSupplier<?>>> i = references.iterator(); i.hasNext(); ) {
+                TrackedSupplier<?> d = i.next().get();
+                if (d == null) {
+                    i.remove();
+                } else {
+                    collection.add(d);
+                }
+            }
+        }
+    }
+}
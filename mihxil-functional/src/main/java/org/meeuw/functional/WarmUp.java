@@ -0,0 +1,226 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * A registry of (memoizing) suppliers that must be evaluated at startup, so that the first requests don't have to wait for them.
+ * <p>
+ * The suppliers are evaluated concurrently on an {@link Executor}. A supplier can declare other suppliers it depends on, which are then evaluated first. A deadline can be given, after which {@link #run(Executor, Duration)} does not wait any longer. The resulting {@link Report} contains how long the evaluation of every supplier took, which ones failed, and which ones did not finish.
+ * <pre>{@code
+ * WarmUp warmUp = new WarmUp()
+ *     .register(config)
+ *     .register(rules, config)
+ *     .register(lookupTables, rules);
+ * WarmUp.Report report = warmUp.run(executor, Duration.ofSeconds(30));
+ * }</pre>
+ *
+ * @since 1.18
+ * @see Suppliers#warmUp(Collection, Executor)
+ */
+public final class WarmUp {
+
+    private final Map<Supplier<?>, List<Supplier<?>>> dependencies = new IdentityHashMap<>();
+    private final List<Supplier<?>> order = new ArrayList<>();
+
+    /**
+     * Registers a supplier to evaluate.
+     * @param supplier the supplier to evaluate. Normally a memoizing one, like the ones created by {@link Suppliers#memoize(Supplier)}.
+     * @param dependsOn suppliers that must be evaluated before this one. They are registered too, if they were not yet.
+     * @return this
+     * @throws IllegalArgumentException if the dependencies would become cyclic
+     */
+    public synchronized WarmUp register(Supplier<?> supplier, Supplier<?>... dependsOn) {
+        for (Supplier<?> dependency : dependsOn) {
+            if (! dependencies.containsKey(dependency)) {
+                register(dependency);
+            }
+            if (dependency == supplier || dependsOn(dependency, supplier)) {
+                throw new IllegalArgumentException(supplier + " and " + dependency + " would depend on each other");
+            }
+        }
+        List<Supplier<?>> list = dependencies.get(supplier);
+        if (list == null) {
+            list = new ArrayList<>();
+            dependencies.put(supplier, list);
+            order.add(supplier);
+        }
+        list.addAll(Arrays.asList(dependsOn));
+        return this;
+    }
+
+    private boolean dependsOn(Supplier<?> supplier, Supplier<?> other) {
+        for (Supplier<?> dependency : dependencies.getOrDefault(supplier, Collections.emptyList())) {
+            if (dependency == other || dependsOn(dependency, other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates all registered suppliers concurrently, and waits until they are all finished.
+     * @param executor the executor on which to evaluate the suppliers
+     * @return a report about the evaluation
+     */
+    public Report run(Executor executor) {
+        return run(executor, null);
+    }
+
+    /**
+     * Evaluates all registered suppliers concurrently, and waits until they are all finished, or the deadline passed.
+     * <p>
+     * Suppliers of which a dependency failed are not evaluated. Suppliers that are not yet started at the deadline are not started anymore, but evaluations in progress are not interrupted.
+     *
+     * @param executor the executor on which to evaluate the suppliers
+     * @param deadline how long to wait at most. {@code null} means unlimited.
+     * @return a report about the evaluation
+     */
+    public synchronized Report run(Executor executor, Duration deadline) {
+        final long start = System.nanoTime();
+        final Report report = new Report();
+        final Map<Supplier<?>, CompletableFuture<Void>> futures = new IdentityHashMap<>();
+        for (Supplier<?> supplier : order) {
+            schedule(supplier, executor, report, futures);
+        }
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]));
+        try {
+            if (deadline == null) {
+                all.get();
+            } else {
+                all.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // individual failures are in the report
+        }
+        for (CompletableFuture<Void> future : futures.values()) {
+            future.cancel(false);
+        }
+        report.finish(order, System.nanoTime() - start);
+        return report;
+    }
+
+    private CompletableFuture<Void> schedule(Supplier<?> supplier, Executor executor, Report report, Map<Supplier<?>, CompletableFuture<Void>> futures) {
+        CompletableFuture<Void> future = futures.get(supplier);
+        if (future == null) {
+            List<Supplier<?>> dependsOn = dependencies.get(supplier);
+            CompletableFuture<?>[] before = new CompletableFuture<?>[dependsOn.size()];
+            for (int i = 0; i < before.length; i++) {
+                before[i] = schedule(dependsOn.get(i), executor, report, futures);
+            }
+            future = CompletableFuture.allOf(before).thenRunAsync(() -> report.evaluate(supplier), executor);
+            futures.put(supplier, future);
+        }
+        return future;
+    }
+
+    /**
+     * The result of {@link #run(Executor, Duration)}.
+     */
+    public static final class Report {
+        private final Map<Supplier<?>, Duration> durations = Collections.synchronizedMap(new IdentityHashMap<>());
+        private final Map<Supplier<?>, Throwable> failures = Collections.synchronizedMap(new IdentityHashMap<>());
+        private final List<Supplier<?>> unfinished = new ArrayList<>();
+        private final List<Supplier<?>> order = new ArrayList<>();
+        /**
+         * Guarded by the lock of {@link #durations}. Evaluations that finish after the report was returned are not recorded anymore.
+         */
+        private boolean finished = false;
+        private Duration elapsed;
+
+        private Report() {
+        }
+
+        private void evaluate(Supplier<?> supplier) {
+            long start = System.nanoTime();
+            Throwable failure = null;
+            try {
+                supplier.get();
+            } catch (Throwable t) {
+                failure = t;
+                Sneaky.sneakyThrow(t);
+            } finally {
+                record(supplier, Duration.ofNanos(System.nanoTime() - start), failure);
+            }
+        }
+
+        private void record(Supplier<?> supplier, Duration duration, Throwable failure) {
+            synchronized (durations) {
+                if (finished) {
+                    return;
+                }
+                if (failure != null) {
+                    failures.put(supplier, failure);
+                }
+                durations.put(supplier, duration);
+            }
+        }
+
+        private void finish(List<Supplier<?>> all, long elapsedNanos) {
+            synchronized (durations) {
+                for (Supplier<?> supplier : all) {
+                    order.add(supplier);
+                    if (! durations.containsKey(supplier)) {
+                        unfinished.add(supplier);
+                    }
+                }
+                finished = true;
+            }
+            elapsed = Duration.ofNanos(elapsedNanos);
+        }
+
+        /**
+         * @return whether all suppliers were evaluated successfully
+         */
+        public boolean isComplete() {
+            return unfinished.isEmpty() && failures.isEmpty();
+        }
+
+        /**
+         * @return how long the evaluation of every finished supplier took (including failed ones)
+         */
+        public Map<Supplier<?>, Duration> getDurations() {
+            return Collections.unmodifiableMap(durations);
+        }
+
+        /**
+         * @return the exceptions of the suppliers that failed
+         */
+        public Map<Supplier<?>, Throwable> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return the suppliers that did not finish before the deadline, or were skipped because a dependency failed
+         */
+        public List<Supplier<?>> getUnfinished() {
+            return Collections.unmodifiableList(unfinished);
+        }
+
+        /**
+         * @return how long the complete warm-up took
+         */
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("warm up in ").append(elapsed);
+            for (Supplier<?> supplier : order) {
+                builder.append("\n").append(supplier).append(": ");
+                Duration duration = durations.get(supplier);
+                builder.append(duration == null ? "unfinished" : duration.toString());
+                Throwable failure = failures.get(supplier);
+                if (failure != null) {
+                    builder.append(" failed: ").append(failure);
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
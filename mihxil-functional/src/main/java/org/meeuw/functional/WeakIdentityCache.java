@@ -0,0 +1,170 @@
+package org.meeuw.functional;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A concurrent cache of memoized results, keyed by the identity of the arguments, which are only weakly referenced. As used by {@link Functions#memoizeWeakIdentity(Function)}.
+ * <p>
+ * Keys are compared with {@code ==} and hashed with {@link System#identityHashCode(Object)}, so their {@code equals} and {@code hashCode} are never called. Once a key is garbage collected, its entry is removed from the map. There is no background thread for that: the cleared references are polled from a {@link ReferenceQueue}, a few at a time, on every call.
+ * <p>
+ * The values are strongly referenced. A value that refers to its own key keeps that key alive, just as in a {@link java.util.WeakHashMap}.
+ *
+ * @param <V> the type of the values
+ * @since 1.18
+ */
+class WeakIdentityCache<V> {
+
+    /**
+     * Maximal number of cleared references to remove on one call
+     */
+    static final int EXPUNGE_BATCH = 16;
+
+    /**
+     * Stands in for the {@code null} key, which is never collected
+     */
+    private static final Object NULL = new Object();
+
+    private final ConcurrentHashMap<Object, Suppliers.MemoizeSupplier<V>> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collected = new LongAdder();
+
+    V get(Object key, Function<Object, ? extends V> loader) {
+        expunge();
+        Object referent = key == null ? NULL : key;
+        Suppliers.MemoizeSupplier<V> entry = map.get(new Lookup(referent));
+        if (entry != null) {
+            hits.increment();
+        } else {
+            WeakKey weakKey = new WeakKey(referent, queue);
+            Suppliers.MemoizeSupplier<V> created = new Suppliers.MemoizeSupplier<>(new Load<>(key, loader));
+            entry = map.putIfAbsent(weakKey, created);
+            if (entry == null) {
+                misses.increment();
+                entry = created;
+            } else {
+                hits.increment();
+            }
+        }
+        try {
+            return entry.get();
+        } catch (Throwable t) {
+            map.remove(new Lookup(referent), entry);
+            throw t;
+        }
+    }
+
+    /**
+     * Removes the entries of keys that were garbage collected, at most {@link #EXPUNGE_BATCH} at a time.
+     */
+    void expunge() {
+        Reference<?> reference;
+        for (int i = 0; i < EXPUNGE_BATCH && (reference = queue.poll()) != null; i++) {
+            if (map.remove(reference) != null) {
+                collected.increment();
+            }
+        }
+    }
+
+    void invalidateAll() {
+        map.clear();
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    /**
+     * The eviction count of these statistics is the number of entries removed because their key was garbage collected.
+     */
+    CacheStatistics statistics() {
+        return new CacheStatistics(hits.sum(), misses.sum(), collected.sum(), size());
+    }
+
+    /**
+     * Calculates the value of an entry. It refers to the key only until that succeeded, since the entry must not keep its key alive.
+     */
+    static final class Load<V> implements Supplier<V> {
+        private final Function<Object, ? extends V> loader;
+        private Object key;
+
+        Load(Object key, Function<Object, ? extends V> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        /**
+         * Only called with the lock of the memoizing supplier held
+         */
+        @Override
+        public V get() {
+            V value = loader.apply(key);
+            key = null;
+            return value;
+        }
+    }
+
+    /**
+     * The key in the map. Equal to another key or a {@link Lookup} with the same referent, and, after it is cleared, only to itself.
+     */
+    static final class WeakKey extends WeakReference<Object> {
+        private final int hash;
+
+        WeakKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Object referent = get();
+            if (referent == null) {
+                return false;
+            }
+            if (o instanceof Lookup) {
+                return ((Lookup) o).referent == referent;
+            }
+            return o instanceof WeakKey && ((WeakKey) o).get() == referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A short-lived, strong key to look up an entry, so that no {@link WeakReference} needs to be created for that.
+     */
+    static final class Lookup {
+        private final Object referent;
+        private final int hash;
+
+        Lookup(Object referent) {
+            this.referent = referent;
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o instanceof WeakKey) {
+                return ((WeakKey) o).get() == referent;
+            }
+            return o instanceof Lookup && ((Lookup) o).referent == referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.meeuw.functional;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncSupplierTest {
+
+    final Queue<Runnable> tasks = new ArrayDeque<>();
+    final Executor executor = tasks::add;
+
+    static class Resource implements AutoCloseable {
+        boolean closed = false;
+        int closeCount = 0;
+        @Override
+        public void close() {
+            closed = true;
+            closeCount++;
+        }
+    }
+
+    @Test
+    void memoizeAsync() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        try (AsyncSupplier<Integer> async = Suppliers.memoizeAsync(calls::incrementAndGet, executor)) {
+            assertThat(tasks).isEmpty();
+            CompletableFuture<Integer> future = async.get();
+            assertThat(async.get()).isSameAs(future);
+            assertThat(tasks).hasSize(1);
+            assertThat(future).isNotDone();
+            assertThat(async.getNow(-1)).isEqualTo(-1);
+
+            tasks.remove().run();
+            assertThat(future).isCompletedWithValue(1);
+            assertThat(async.join()).isEqualTo(1);
+            assertThat(async.get()).isSameAs(future);
+            assertThat(calls).hasValue(1);
+            assertThat(async.unwrap()).isNotNull();
+            assertThat(async.toString()).endsWith("(memoize async)");
+        }
+    }
+
+    @Test
+    void closeCancelsInFlight() throws Exception {
+        Resource resource = new Resource();
+        AtomicInteger calls = new AtomicInteger();
+        AsyncSupplier<Resource> async = Suppliers.memoizeAsync(() -> {
+            calls.incrementAndGet();
+            return resource;
+        }, executor);
+        CompletableFuture<Resource> future = async.get();
+        async.close();
+        assertThat(future).isCancelled();
+        assertThatThrownBy(async::join).isInstanceOf(CancellationException.class);
+        // not started yet, so not needed to calculate at all
+        tasks.remove().run();
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void closeWhileCalculating() throws Exception {
+        Resource resource = new Resource();
+        AtomicReference<AsyncSupplier<Resource>> async = new AtomicReference<>();
+        async.set(Suppliers.memoizeAsync(() -> {
+            try {
+                async.get().close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return resource;
+        }, executor));
+        CompletableFuture<Resource> future = async.get().get();
+        tasks.remove().run();
+        assertThat(future).isCancelled();
+        // the value came too late, and is cleaned up
+        assertThat(resource.closed).isTrue();
+    }
+
+    @Test
+    void closeCleansUpValue() throws Exception {
+        Resource resource = new Resource();
+        AsyncSupplier<Resource> async = Suppliers.memoizeAsync(() -> resource, Runnable::run);
+        assertThat(async.join()).isSameAs(resource);
+        async.close();
+        assertThat(resource.closed).isTrue();
+        async.close();
+        assertThat(resource.closeCount).isEqualTo(1);
+    }
+
+    @Test
+    void closeBeforeStart() throws Exception {
+        AsyncSupplier<Integer> async = Suppliers.memoizeAsync(() -> 1, executor);
+        async.close();
+        assertThatThrownBy(async::get).isInstanceOf(IllegalStateException.class);
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    void exceptionally() {
+        AsyncSupplier<Integer> async = Suppliers.memoizeAsync(() -> {
+            throw new IllegalStateException("failed");
+        }, Runnable::run);
+        assertThat(async.get()).isCompletedExceptionally();
+        assertThatThrownBy(async::join).isInstanceOf(CompletionException.class).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void rejected() {
+        AsyncSupplier<Integer> async = Suppliers.memoizeAsync(() -> 1, r -> {
+            throw new RejectedExecutionException();
+        });
+        assertThat(async.get()).isCompletedExceptionally();
+    }
+
+    @SuppressWarnings("EqualsWithItself")
+    @Test
+    void equalsDoesNotStart() {
+        Supplier<Integer> supplier = () -> 1;
+        Executor direct = Runnable::run;
+        AsyncSupplier<Integer> a = Suppliers.memoizeAsync(supplier, direct);
+        AsyncSupplier<Integer> b = Suppliers.memoizeAsync(supplier, direct);
+        assertThat(a.equals(a)).isTrue();
+        assertThat(a).isEqualTo(b).hasSameHashCodeAs(b);
+        a.get();
+        assertThat(a).isNotEqualTo(b);
+        b.get();
+        assertThat(a).isEqualTo(b);
+        assertThat(a).isNotEqualTo(Suppliers.memoizeAsync(supplier, executor));
+    }
+}
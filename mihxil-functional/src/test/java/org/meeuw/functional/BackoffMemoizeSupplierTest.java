@@ -0,0 +1,130 @@
+package org.meeuw.functional;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BackoffMemoizeSupplierTest {
+
+    final AtomicLong time = new AtomicLong();
+    final AtomicInteger calls = new AtomicInteger();
+    int failures = 0;
+
+    final ThrowingSupplier<String, IOException> backend = () -> {
+        calls.incrementAndGet();
+        if (failures > 0) {
+            failures--;
+            throw new IOException("failure " + calls.get());
+        }
+        return "value " + calls.get();
+    };
+
+    @Test
+    void backoff() throws IOException {
+        failures = 3;
+        BackoffMemoizeSupplier<String, IOException> memoize = new BackoffMemoizeSupplier<>(backend, Duration.ofSeconds(1), Duration.ofSeconds(3), time::get);
+
+        assertThatThrownBy(memoize::getThrows).isInstanceOf(IOException.class).hasMessage("failure 1");
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 1");
+        assertThat(calls).hasValue(1);
+
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 2");
+        // backoff doubled
+        time.addAndGet(Duration.ofMillis(1999).toNanos());
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 2");
+        time.addAndGet(Duration.ofMillis(1).toNanos());
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 3");
+        // maximal backoff
+        time.addAndGet(Duration.ofSeconds(3).toNanos());
+        assertThat(memoize.getThrows()).isEqualTo("value 4");
+        assertThat(memoize.get()).isEqualTo("value 4");
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void success() throws IOException {
+        ThrowingSupplier<String, IOException> memoize = Suppliers.memoizeWithBackoff(backend, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        assertThat(memoize.getThrows()).isEqualTo("value 1");
+        assertThat(memoize.getThrows()).isEqualTo("value 1");
+        assertThat(calls).hasValue(1);
+        assertThat(memoize.toString()).endsWith("(memoize with backoff PT1S-PT1M)");
+        assertThat(memoize).isNotEqualTo(Suppliers.memoizeWithBackoff(backend, Duration.ofSeconds(1), Duration.ofMinutes(1)));
+        assertThat(memoize).isEqualTo(memoize);
+    }
+
+    @Test
+    void longBackoffDoesNotOverflow() {
+        failures = 3;
+        Duration initial = Duration.ofNanos(Long.MAX_VALUE / 2 + 1);
+        BackoffMemoizeSupplier<String, IOException> memoize = new BackoffMemoizeSupplier<>(backend, initial, ChronoUnit.FOREVER.getDuration(), time::get);
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 1");
+        time.addAndGet(initial.toNanos());
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 2");
+        // doubling would have overflowed to a negative backoff, retrying right away
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 2");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void illegalBackoff() {
+        assertThatThrownBy(() -> Suppliers.memoizeWithBackoff(backend, null, Duration.ofSeconds(1))).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> Suppliers.memoizeWithBackoff(backend, Duration.ofSeconds(1), null)).isInstanceOf(NullPointerException.class);
+        assertThatThrownBy(() -> Suppliers.memoizeWithBackoff(backend, Duration.ZERO, Duration.ofSeconds(1))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Suppliers.memoizeWithBackoff(backend, Duration.ofSeconds(-1), Duration.ofSeconds(1))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Suppliers.memoizeWithBackoff(backend, Duration.ofSeconds(2), Duration.ofSeconds(1))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void onlyOneRetry() throws Exception {
+        failures = 1;
+        BlockingSupplier slow = new BlockingSupplier();
+        BackoffMemoizeSupplier<String, IOException> memoize = new BackoffMemoizeSupplier<>(slow, Duration.ofSeconds(1), Duration.ofSeconds(1), time::get);
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 1");
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        slow.block = true;
+        Thread retry = new Thread(() -> {
+            try {
+                memoize.getThrows();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        retry.start();
+        slow.entered.await();
+        // while retrying, the others still get the exception
+        assertThatThrownBy(memoize::getThrows).hasMessage("failure 1");
+        slow.proceed.countDown();
+        retry.join();
+        assertThat(memoize.getThrows()).isEqualTo("value 2");
+        assertThat(calls).hasValue(2);
+    }
+
+    class BlockingSupplier implements ThrowingSupplier<String, IOException> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        volatile boolean block = false;
+
+        @Override
+        public String getThrows() throws IOException {
+            if (block) {
+                entered.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return backend.getThrows();
+        }
+    }
+}
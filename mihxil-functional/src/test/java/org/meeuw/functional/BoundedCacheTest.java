@@ -0,0 +1,261 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BoundedCacheTest {
+
+    final AtomicInteger loads = new AtomicInteger();
+    final BoundedCache.Loader<String> loader = (key, b, c, d) -> {
+        loads.incrementAndGet();
+        return key == null ? null : ((String) key).toUpperCase();
+    };
+
+    @Test
+    void lru() {
+        BoundedCache<String> cache = new BoundedCache<>(3, Eviction.LRU);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("c", loader);
+        cache.get("a", loader);
+        cache.get("d", loader); // evicts b
+        assertThat(loads.get()).isEqualTo(4);
+        cache.get("a", loader);
+        cache.get("c", loader);
+        assertThat(loads.get()).isEqualTo(4);
+        assertThat(cache.get("b", loader)).isEqualTo("B");
+        assertThat(loads.get()).isEqualTo(5);
+
+        CacheStatistics statistics = cache.statistics();
+        assertThat(statistics.getHitCount()).isEqualTo(3);
+        assertThat(statistics.getMissCount()).isEqualTo(5);
+        assertThat(statistics.getEvictionCount()).isEqualTo(2);
+        assertThat(statistics.getSize()).isEqualTo(3);
+        assertThat(statistics.getHitRate()).isEqualTo(3.0 / 8);
+        assertThat(statistics.toString()).isEqualTo("hits: 3, misses: 5, evictions: 2, size: 3");
+    }
+
+    @Test
+    void lfu() {
+        BoundedCache<String> cache = new BoundedCache<>(3, Eviction.LFU);
+        cache.get("a", loader);
+        cache.get("a", loader);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("b", loader);
+        cache.get("c", loader);
+        cache.get("d", loader); // evicts c, the least frequently used
+        cache.get("e", loader); // evicts d
+        assertThat(loads.get()).isEqualTo(5);
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("e", loader);
+        assertThat(loads.get()).isEqualTo(5);
+        cache.get("c", loader);
+        assertThat(loads.get()).isEqualTo(6);
+    }
+
+    @Test
+    void nullKeysAndValues() {
+        BoundedCache<String> cache = new BoundedCache<>(10, Eviction.LRU);
+        assertThat(cache.get(null, loader)).isNull();
+        assertThat(cache.get(null, loader)).isNull();
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failuresAreNotMemoized() {
+        BoundedCache<String> cache = new BoundedCache<>(10, Eviction.LRU);
+        assertThatThrownBy(() -> cache.get("x", (k, b, c, d) -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get("x", loader)).isEqualTo("X");
+    }
+
+    @Test
+    void invalidateAll() {
+        BoundedCache<String> cache = new BoundedCache<>(10, Eviction.LFU);
+        cache.get("a", loader);
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+        cache.get("a", loader);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrently() throws Exception {
+        BoundedCache<Integer> cache = new BoundedCache<>(10_000, Eviction.LRU);
+        AtomicInteger calculations = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        assertThat(cache.get(i, (k, b, c, d) -> {
+                            calculations.incrementAndGet();
+                            return (Integer) k * 2;
+                        })).isEqualTo(i * 2);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertThat(calculations.get()).isEqualTo(5000);
+            assertThat(cache.statistics().getHitCount()).isEqualTo(7 * 5000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void multipleArguments() {
+        BoundedCache<String> cache = new BoundedCache<>(3, 100, Eviction.LRU);
+        BoundedCache.Loader<String> concat = (a, b, c, d) -> {
+            loads.incrementAndGet();
+            return "" + a + b + c;
+        };
+        assertThat(cache.get("a", "b", "c", concat)).isEqualTo("abc");
+        assertThat(cache.get("a", "b", "c", concat)).isEqualTo("abc");
+        assertThat(cache.get("a", "c", "b", concat)).isEqualTo("acb");
+        assertThat(cache.get("a", null, "b", concat)).isEqualTo("anullb");
+        assertThat(cache.get(null, null, null, concat)).isEqualTo("nullnullnull");
+        assertThat(cache.get(null, null, null, concat)).isEqualTo("nullnullnull");
+        assertThat(loads.get()).isEqualTo(4);
+
+        assertThatThrownBy(() -> new BoundedCache<>(5, 100, Eviction.LRU)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void manyEntriesAndRemovals() {
+        // many insertions, evictions and failures, to exercise growing the tables and backward shift deletion
+        BoundedCache<Integer> cache = new BoundedCache<>(2, 500, Eviction.LFU);
+        BoundedCache.Loader<Integer> sum = (a, b, c, d) -> {
+            int result = (Integer) a + (Integer) b;
+            if (result % 7 == 0) {
+                throw new IllegalArgumentException();
+            }
+            return result;
+        };
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 2000; i++) {
+                int a = i % 97;
+                int b = i / 97;
+                if ((a + b) % 7 == 0) {
+                    assertThatThrownBy(() -> cache.get(a, b, sum)).isInstanceOf(IllegalArgumentException.class);
+                } else {
+                    assertThat(cache.get(a, b, sum)).isEqualTo(a + b);
+                }
+            }
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(500 + 16);
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void hitsDoNotAllocate() {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        QuadriFunction<Integer, Integer, Integer, Integer, Integer> sum = (a, b, c, d) -> a + b + c + d;
+        QuadriFunction<Integer, Integer, Integer, Integer, Integer> memoized = Functions.memoize(sum, 1000, Eviction.LRU);
+        Integer[] values = new Integer[10];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1000 + i;
+        }
+        for (int i = 0; i < 10_000; i++) {
+            memoized.apply(values[i % 10], values[(i / 10) % 10], values[1], values[2]);
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            memoized.apply(values[i % 10], values[(i / 10) % 10], values[1], values[2]);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        System.out.printf("allocated %,d bytes for 100000 hits%n", allocated);
+        // a single allocated object per hit would be at least 1.6 MB
+        assertThat(allocated).isLessThan(10_000);
+        assertThat(((Memoized) memoized).statistics().getMissCount()).isEqualTo(100);
+    }
+
+    @Test
+    void tinyLfuResistsScans() {
+        BoundedCache<String> cache = new BoundedCache<>(10, Eviction.TINY_LFU);
+        for (int i = 0; i < 5; i++) {
+            for (int k = 0; k < 5; k++) {
+                cache.get("hot" + k, loader);
+            }
+        }
+        // fewer than the sample size of the sketch (10 times the capacity), which would make the hot keys age
+        for (int i = 0; i < 60; i++) {
+            cache.get("scan" + i, loader);
+        }
+        int before = loads.get();
+        for (int k = 0; k < 5; k++) {
+            cache.get("hot" + k, loader);
+        }
+        assertThat(loads.get()).isEqualTo(before);
+        assertThat(cache.size()).isEqualTo(10);
+    }
+
+    @Test
+    void hitRates() {
+        Random random = new Random(1);
+        int[] zipf = zipf(random, 10_000, 200_000);
+        int[] scans = new int[200_000];
+        for (int i = 0; i < scans.length; i++) {
+            // a popular set of keys, interrupted by long scans of keys that are used only once
+            scans[i] = (i / 1000) % 2 == 0 ? random.nextInt(200) : 1_000_000 + i;
+        }
+        double zipfLru = hitRate(Eviction.LRU, zipf);
+        double zipfTinyLfu = hitRate(Eviction.TINY_LFU, zipf);
+        double scanLru = hitRate(Eviction.LRU, scans);
+        double scanTinyLfu = hitRate(Eviction.TINY_LFU, scans);
+        System.out.printf("zipf: LRU %.3f, LFU %.3f, TINY_LFU %.3f%n", zipfLru, hitRate(Eviction.LFU, zipf), zipfTinyLfu);
+        System.out.printf("scans: LRU %.3f, LFU %.3f, TINY_LFU %.3f%n", scanLru, hitRate(Eviction.LFU, scans), scanTinyLfu);
+        assertThat(zipfTinyLfu).isGreaterThan(zipfLru);
+        assertThat(scanTinyLfu).isGreaterThan(scanLru);
+    }
+
+    private static double hitRate(Eviction eviction, int[] trace) {
+        BoundedCache<Integer> cache = new BoundedCache<>(500, eviction);
+        BoundedCache.Loader<Integer> identity = (a, b, c, d) -> (Integer) a;
+        for (int key : trace) {
+            cache.get(key, identity);
+        }
+        return cache.statistics().getHitRate();
+    }
+
+    /**
+     * Keys {@code 0..n} with a Zipfian distribution (exponent 1)
+     */
+    private static int[] zipf(Random random, int n, int length) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace[i] = index >= 0 ? index : -index - 1;
+        }
+        return trace;
+    }
+}
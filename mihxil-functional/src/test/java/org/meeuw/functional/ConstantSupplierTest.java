@@ -0,0 +1,126 @@
+package org.meeuw.functional;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConstantSupplierTest {
+
+    static final AtomicInteger STATIC_CALLS = new AtomicInteger();
+    static final MethodHandle CONSTANT = Suppliers.constant(() -> "constant " + STATIC_CALLS.incrementAndGet()).getInvoker();
+
+    @Test
+    void constant() throws Throwable {
+        AtomicInteger calls = new AtomicInteger();
+        ConstantSupplier<String> constant = Suppliers.constant(() -> "value " + calls.incrementAndGet());
+        assertThat(constant.isEvaluated()).isFalse();
+        assertThat(constant.get()).isEqualTo("value 1");
+        assertThat(constant.get()).isEqualTo("value 1");
+        assertThat((String) (Object) constant.getInvoker().invokeExact()).isEqualTo("value 1");
+        assertThat(constant.isEvaluated()).isTrue();
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(constant.toString()).endsWith("(constant)");
+    }
+
+    @Test
+    void staticInvoker() throws Throwable {
+        for (int i = 0; i < 1000; i++) {
+            assertThat((String) (Object) CONSTANT.invokeExact()).isEqualTo("constant 1");
+        }
+        assertThat(STATIC_CALLS.get()).isEqualTo(1);
+    }
+
+    @Test
+    void nullValue() {
+        AtomicInteger calls = new AtomicInteger();
+        ConstantSupplier<String> constant = Suppliers.constant(() -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        assertThat(constant.get()).isNull();
+        assertThat(constant.get()).isNull();
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failureIsNotMemoized() {
+        AtomicInteger calls = new AtomicInteger();
+        ConstantSupplier<String> constant = Suppliers.constant(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("not yet");
+            }
+            return "ok";
+        });
+        assertThatThrownBy(constant::get).isInstanceOf(IllegalStateException.class);
+        assertThat(constant.isEvaluated()).isFalse();
+        assertThat(constant.get()).isEqualTo("ok");
+    }
+
+    @Test
+    void concurrently() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ConstantSupplier<Integer> constant = Suppliers.constant(() -> {
+            calls.incrementAndGet();
+            return 1;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long sum = 0;
+                    for (int i = 0; i < 10_000; i++) {
+                        sum += constant.get();
+                    }
+                    return sum;
+                }));
+            }
+            start.countDown();
+            for (Future<Long> future : futures) {
+                assertThat(future.get()).isEqualTo(10_000L);
+            }
+            assertThat(calls.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Not a real benchmark, but compares the throughput of {@link Suppliers#memoize(Supplier)} and {@link Suppliers#constant(Supplier)}.
+     */
+    @Test
+    void compareWithMemoize() throws Throwable {
+        final int calls = 10_000_000;
+        Supplier<Integer> memoize = Suppliers.memoize(() -> 1);
+        ConstantSupplier<Integer> constant = Suppliers.constant(() -> 1);
+        MethodHandle invoker = constant.getInvoker();
+        for (int round = 0; round < 3; round++) {
+            long nanos = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < calls; i++) {
+                sum += memoize.get();
+            }
+            long memoizeNanos = System.nanoTime() - nanos;
+            assertThat(sum).isEqualTo(calls);
+
+            nanos = System.nanoTime();
+            sum = 0;
+            for (int i = 0; i < calls; i++) {
+                sum += (Integer) (Object) invoker.invokeExact();
+            }
+            long constantNanos = System.nanoTime() - nanos;
+            assertThat(sum).isEqualTo(calls);
+            System.out.printf("memoize: %,d gets/ms, constant: %,d gets/ms%n", (long) calls * 1_000_000 / Math.max(1, memoizeNanos), (long) calls * 1_000_000 / Math.max(1, constantNanos));
+        }
+    }
+}
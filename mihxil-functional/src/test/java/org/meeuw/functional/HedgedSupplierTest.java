@@ -0,0 +1,125 @@
+package org.meeuw.functional;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgedSupplierTest {
+
+    final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fastFirst() throws IOException {
+        AtomicInteger secondCalled = new AtomicInteger();
+        ThrowingSupplier<String, IOException> hedged = Suppliers.hedged(Arrays.asList(
+            () -> "first",
+            () -> "second " + secondCalled.incrementAndGet()
+        ), Duration.ofSeconds(10), executor);
+        assertThat(hedged.getThrows()).isEqualTo("first");
+        assertThat(secondCalled.get()).isEqualTo(0);
+        assertThat(hedged.toString()).endsWith("(hedged PT10S)");
+    }
+
+    @Test
+    void slowFirst() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ThrowingSupplier<String, IOException> hedged = Suppliers.hedged(Arrays.asList(
+            () -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return "first";
+            },
+            () -> "second"
+        ), Duration.ofMillis(10), executor);
+        assertThat(hedged.getThrows()).isEqualTo("second");
+        // the loser was cancelled
+        assertThat(interrupted.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void failureFiresNextImmediately() throws IOException {
+        ThrowingSupplier<String, IOException> hedged = Suppliers.hedged(Arrays.asList(
+            () -> {
+                throw new IOException("replica 1 down");
+            },
+            () -> "second"
+        ), Duration.ofHours(1), executor);
+        assertThat(hedged.getThrows()).isEqualTo("second");
+    }
+
+    @Test
+    void allFail() {
+        ThrowingSupplier<String, IOException> hedged = Suppliers.hedged(Arrays.asList(
+            () -> {
+                throw new IOException("replica 1 down");
+            },
+            () -> {
+                throw new IOException("replica 2 down");
+            }
+        ), Duration.ofMillis(1), executor);
+        assertThatThrownBy(hedged::getThrows)
+            .isInstanceOf(IOException.class)
+            .hasMessage("replica 1 down")
+            .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+    }
+
+    @Test
+    void lateLoserIsClosed() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        CountDownLatch closing = new CountDownLatch(1);
+        ThrowingSupplier<AutoCloseable, Exception> hedged = Suppliers.hedged(Arrays.asList(
+            () -> {
+                // ignores interruption
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                return () -> {
+                    closed.set(true);
+                    closing.countDown();
+                };
+            },
+            () -> () -> {}
+        ), Duration.ofMillis(10), executor);
+        hedged.getThrows();
+        release.countDown();
+        assertThat(closing.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(closed.get()).isTrue();
+    }
+
+    @Test
+    void equality() {
+        List<ThrowingSupplier<String, IOException>> sources = Arrays.asList(() -> "first", () -> "second");
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            ThrowingSupplier<String, IOException> hedged = Suppliers.hedged(sources, Duration.ofMillis(10), executor);
+            assertThat(hedged).isEqualTo(Suppliers.hedged(sources, Duration.ofMillis(10), executor));
+            assertThat(hedged.hashCode()).isEqualTo(Suppliers.hedged(sources, Duration.ofMillis(10), executor).hashCode());
+            assertThat(hedged).isNotEqualTo(Suppliers.hedged(sources, Duration.ofMillis(20), executor));
+            assertThat(hedged).isNotEqualTo(Suppliers.hedged(sources, Duration.ofMillis(10), other));
+        } finally {
+            other.shutdown();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyedSupplierTest {
+
+    final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+    final Function<String, String> loader = key -> key + loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+
+    @Test
+    void memoizedPerKey() {
+        KeyedSupplier<String, String> keyed = Suppliers.keyed(loader);
+        assertThat(keyed.apply("a")).isEqualTo("a1");
+        assertThat(keyed.apply("a")).isEqualTo("a1");
+        assertThat(keyed.apply("b")).isEqualTo("b1");
+        assertThat(keyed.size()).isEqualTo(2);
+        assertThat(keyed.unwrap()).isSameAs(loader);
+
+        Supplier<String> c = keyed.supplier("c");
+        assertThat(keyed.isEvaluated("c")).isFalse();
+        assertThat(c.get()).isEqualTo("c1");
+        assertThat(keyed.isEvaluated("c")).isTrue();
+
+        assertThat(keyed.invalidate("a")).isTrue();
+        assertThat(keyed.invalidate("a")).isFalse();
+        assertThat(keyed.apply("a")).isEqualTo("a2");
+        assertThat(c.get()).isEqualTo("c1");
+
+        keyed.invalidateAll();
+        assertThat(c.get()).isEqualTo("c2");
+    }
+
+    @Test
+    void clockEviction() {
+        KeyedSupplier<String, String> keyed = Suppliers.keyed(loader, 3);
+        keyed.apply("a");
+        keyed.apply("b");
+        keyed.apply("c");
+        // a is used again, so gets a second chance
+        keyed.apply("a");
+        keyed.apply("d");
+        assertThat(keyed.size()).isEqualTo(3);
+        assertThat(keyed.getEvictionCount()).isEqualTo(1);
+        assertThat(keyed.isEvaluated("a")).isTrue();
+        assertThat(keyed.isEvaluated("b")).isFalse();
+        assertThat(keyed.apply("b")).isEqualTo("b2");
+        assertThat(keyed.toString()).endsWith("(keyed 3)");
+
+        assertThatThrownBy(() -> Suppliers.keyed(loader, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void invalidatedKeysDoNotAccumulate() {
+        KeyedSupplier<String, String> keyed = Suppliers.keyed(loader, 10);
+        for (int i = 0; i < 10_000; i++) {
+            keyed.apply("k" + i);
+            keyed.invalidate("k" + i);
+            if (i % 100 == 0) {
+                keyed.invalidateAll();
+            }
+        }
+        assertThat(keyed.size()).isEqualTo(0);
+        assertThat(keyed.clockSize()).isLessThanOrEqualTo(11);
+        for (int i = 0; i < 20; i++) {
+            keyed.apply("n" + i);
+        }
+        assertThat(keyed.size()).isEqualTo(10);
+    }
+
+    @Test
+    void boundedWhileInvalidatingAll() throws Exception {
+        KeyedSupplier<Integer, Integer> keyed = Suppliers.keyed(i -> i, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                int offset = t * 1_000_000;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        keyed.apply(offset + i);
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    keyed.invalidateAll();
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < 1_000; i++) {
+            keyed.apply(-i);
+        }
+        assertThat(keyed.size()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void slowLoadDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        KeyedSupplier<Integer, Integer> keyed = Suppliers.keyed(key -> {
+            if (key == 0) {
+                loading.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return key * 10;
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> slow = executor.submit(() -> keyed.apply(0));
+            assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+            // many keys, so some will share the bin of key 0
+            for (int i = 1; i < 1000; i++) {
+                assertThat(keyed.apply(i)).isEqualTo(i * 10);
+            }
+            release.countDown();
+            assertThat(slow.get()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void singleEvaluationUnderConcurrency() throws Exception {
+        KeyedSupplier<String, String> keyed = Suppliers.keyed(key -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(key);
+        }, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        assertThat(keyed.apply("k" + i)).isEqualTo("k" + i + "1");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertThat(loads).hasSize(100);
+            assertThat(loads.values()).allSatisfy(count -> assertThat(count).hasValue(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
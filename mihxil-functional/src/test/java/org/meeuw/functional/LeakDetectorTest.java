@@ -0,0 +1,97 @@
+package org.meeuw.functional;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LeakDetectorTest {
+
+    final List<LeakDetector.Leak> leaks = new CopyOnWriteArrayList<>();
+    final AtomicInteger closed = new AtomicInteger();
+
+    @AfterEach
+    void disable() {
+        LeakDetector.disable();
+    }
+
+    @Test
+    void reportsAndCloses() {
+        LeakDetector.enable(1, true, leaks::add);
+        assertThat(LeakDetector.isEnabled()).isTrue();
+        leak();
+        awaitGc(() -> ! leaks.isEmpty());
+
+        assertThat(leaks).hasSize(1);
+        LeakDetector.Leak leak = leaks.get(0);
+        assertThat(leak.isSampled()).isTrue();
+        assertThat(leak).hasMessageEndingWith("was not closed, closing it now");
+        assertThat(leak.getStackTrace()).anySatisfy(e -> assertThat(e.getMethodName()).isEqualTo("leak"));
+        assertThat(closed.get()).isEqualTo(1);
+        assertThat(LeakDetector.getLeakCount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void notSampled() {
+        LeakDetector.enable(0, false, leaks::add);
+        leak();
+        awaitGc(() -> ! leaks.isEmpty());
+        assertThat(leaks.get(0).isSampled()).isFalse();
+        assertThat(leaks.get(0).getStackTrace()).isEmpty();
+        assertThat(closed.get()).isEqualTo(0);
+    }
+
+    @Test
+    void closedIsNoLeak() throws Exception {
+        LeakDetector.enable(1, true, leaks::add);
+        closeProperly();
+        // a leak to know that the detector processed the collected suppliers
+        leak();
+        awaitGc(() -> ! leaks.isEmpty());
+        assertThat(leaks).hasSize(1);
+        assertThat(closed.get()).isEqualTo(2);
+    }
+
+    @Test
+    void disabled() {
+        assertThat(LeakDetector.isEnabled()).isFalse();
+        leak();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        assertThat(leaks).isEmpty();
+        assertThatThrownBy(() -> LeakDetector.enable(2, false)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void leak() {
+        UnwrappableCloseableSupplier<String, ?> supplier = Suppliers.closeable(() -> "resource", s -> closed.incrementAndGet());
+        assertThat(supplier.get()).isEqualTo("resource");
+    }
+
+    private void closeProperly() throws Exception {
+        try (UnwrappableCloseableSupplier<String, ?> supplier = Suppliers.closeable(() -> "resource", s -> closed.incrementAndGet())) {
+            assertThat(supplier.get()).isEqualTo("resource");
+        }
+    }
+
+    private static void awaitGc(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (! condition.getAsBoolean() && System.nanoTime() < deadline) {
+            System.gc();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
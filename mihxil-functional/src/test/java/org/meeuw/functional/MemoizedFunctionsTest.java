@@ -0,0 +1,108 @@
+package org.meeuw.functional;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemoizedFunctionsTest {
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void function() {
+        Function<Integer, Integer> square = i -> {
+            calls.incrementAndGet();
+            return i * i;
+        };
+        Function<Integer, Integer> memoized = Functions.memoize(square);
+        assertThat(memoized.apply(3)).isEqualTo(9);
+        assertThat(memoized.apply(3)).isEqualTo(9);
+        assertThat(calls.get()).isEqualTo(1);
+
+        assertThat(memoized).isEqualTo(Functions.memoize(square));
+        assertThat(memoized).hasSameHashCodeAs(Functions.memoize(square));
+        assertThat(memoized).isNotEqualTo(Functions.memoize(square, 10, Eviction.LFU));
+        assertThat(((Unwrappable<?>) memoized).unwrap()).isSameAs(square);
+        assertThat(memoized.toString()).endsWith("(memoize 1024 LRU)");
+
+        Memoized cache = (Memoized) memoized;
+        assertThat(cache.statistics().getHitCount()).isEqualTo(1);
+        assertThat(cache.statistics().getMissCount()).isEqualTo(1);
+        cache.invalidateAll();
+        memoized.apply(3);
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void biFunction() {
+        BiFunction<String, Integer, String> repeat = (s, i) -> {
+            calls.incrementAndGet();
+            StringBuilder builder = new StringBuilder();
+            for (int j = 0; j < i; j++) {
+                builder.append(s);
+            }
+            return builder.toString();
+        };
+        BiFunction<String, Integer, String> memoized = Functions.memoize(repeat, 2, Eviction.LRU);
+        assertThat(memoized.apply("a", 3)).isEqualTo("aaa");
+        assertThat(memoized.apply("a", 3)).isEqualTo("aaa");
+        assertThat(memoized.apply("a", 2)).isEqualTo("aa");
+        assertThat(memoized.apply(null, 2)).isEqualTo("nullnull");
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(((Memoized) memoized).statistics().getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void triAndQuadriFunction() {
+        TriFunction<Integer, Integer, Integer, Integer> sum = (a, b, c) -> {
+            calls.incrementAndGet();
+            return a + b + c;
+        };
+        TriFunction<Integer, Integer, Integer, Integer> memoizedSum = Functions.memoize(sum);
+        assertThat(memoizedSum.apply(1, 2, 3)).isEqualTo(6);
+        assertThat(memoizedSum.apply(1, 2, 3)).isEqualTo(6);
+        assertThat(memoizedSum.apply(3, 2, 1)).isEqualTo(6);
+        assertThat(calls.get()).isEqualTo(2);
+
+        QuadriFunction<Integer, Integer, Integer, Integer, Integer> product = (a, b, c, d) -> {
+            calls.incrementAndGet();
+            return a * b * c * d;
+        };
+        QuadriFunction<Integer, Integer, Integer, Integer, Integer> memoizedProduct = Functions.memoize(product, 100, Eviction.LFU);
+        assertThat(memoizedProduct.apply(1, 2, 3, 4)).isEqualTo(24);
+        assertThat(memoizedProduct.apply(1, 2, 3, 4)).isEqualTo(24);
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(memoizedProduct.toString()).endsWith("(memoize 100 LFU)");
+    }
+
+    @Test
+    void throwing() throws IOException {
+        ThrowingFunction<String, Integer, IOException> parse = s -> {
+            calls.incrementAndGet();
+            if (s.isEmpty()) {
+                throw new IOException("empty");
+            }
+            return s.length();
+        };
+        ThrowingFunction<String, Integer, IOException> memoized = Functions.memoizeThrowing(parse);
+        assertThat(memoized.applyWithException("abc")).isEqualTo(3);
+        assertThat(memoized.applyWithException("abc")).isEqualTo(3);
+        assertThatThrownBy(() -> memoized.applyWithException("")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> memoized.applyWithException("")).isInstanceOf(IOException.class);
+        // failures are not memoized
+        assertThat(calls.get()).isEqualTo(3);
+
+        ThrowingBiFunction<String, String, String, IOException> concat = (a, b) -> a + b;
+        assertThat(Functions.memoizeThrowing(concat).applyWithException("a", "b")).isEqualTo("ab");
+        ThrowingTriFunction<String, String, String, String, IOException> concat3 = (a, b, c) -> a + b + c;
+        assertThat(Functions.memoizeThrowing(concat3).applyWithException("a", "b", "c")).isEqualTo("abc");
+        ThrowingQuadriFunction<String, String, String, String, String, IOException> concat4 = (a, b, c, d) -> a + b + c + d;
+        assertThat(Functions.memoizeThrowing(concat4, 10, Eviction.LRU).applyWithException("a", "b", "c", "d")).isEqualTo("abcd");
+    }
+}
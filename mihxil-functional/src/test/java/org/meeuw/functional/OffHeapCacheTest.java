@@ -0,0 +1,146 @@
+package org.meeuw.functional;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OffHeapCacheTest {
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void memoizeOffHeap() {
+        Function<Integer, String> describe = i -> {
+            calls.incrementAndGet();
+            return i == 0 ? null : "number " + i;
+        };
+        Function<Integer, String> memoized = Functions.memoizeOffHeap(describe, Codec.ofInteger(), Codec.utf8(), 1 << 20);
+        assertThat(memoized.apply(1)).isEqualTo("number 1");
+        assertThat(memoized.apply(1)).isEqualTo("number 1");
+        assertThat(memoized.apply(0)).isNull();
+        assertThat(memoized.apply(0)).isNull();
+        assertThat(calls.get()).isEqualTo(2);
+
+        assertThat(((Unwrappable<?>) memoized).unwrap()).isSameAs(describe);
+        assertThat(memoized.toString()).endsWith("(memoizeOffHeap 1048576)");
+        assertThat(memoized).isEqualTo(Functions.memoizeOffHeap(describe, Codec.ofInteger(), Codec.utf8(), 1 << 20));
+        assertThat(Codec.<String>serializable()).isSameAs(Codec.<Integer>serializable());
+
+        CacheStatistics statistics = ((Memoized) memoized).statistics();
+        assertThat(statistics.getHitCount()).isEqualTo(2);
+        assertThat(statistics.getMissCount()).isEqualTo(2);
+        assertThat(statistics.getSize()).isEqualTo(2);
+        ((Memoized) memoized).invalidateAll();
+        memoized.apply(1);
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void nullKeysAndReplacing() {
+        OffHeapCache<String> cache = new OffHeapCache<>(Codec.utf8(), 4096);
+        assertThat(cache.lookup(null)).isSameAs(OffHeapCache.ABSENT);
+        assertThat(cache.put(null, "null")).isTrue();
+        assertThat(cache.put(new byte[0], "empty")).isTrue();
+        assertThat(cache.lookup(null)).isEqualTo("null");
+        assertThat(cache.lookup(new byte[0])).isEqualTo("empty");
+        assertThat(cache.put(new byte[0], "replaced")).isTrue();
+        assertThat(cache.lookup(new byte[0])).isEqualTo("replaced");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void boundedInBytes() {
+        // one slab of 1024 bytes, so 16 chunks of 64 bytes
+        OffHeapCache<String> cache = new OffHeapCache<>(Codec.utf8(), 1024);
+        for (int i = 0; i < 16; i++) {
+            assertThat(cache.put(key(i), "v" + i)).isTrue();
+        }
+        assertThat(cache.lookup(key(0))).isEqualTo("v0");
+        assertThat(cache.put(key(16), "v16")).isTrue();
+        // 1 was the least recently used
+        assertThat(cache.lookup(key(1))).isSameAs(OffHeapCache.ABSENT);
+        assertThat(cache.lookup(key(0))).isEqualTo("v0");
+        assertThat(cache.lookup(key(16))).isEqualTo("v16");
+        assertThat(cache.size()).isEqualTo(16);
+        assertThat(cache.getAllocatedBytes()).isEqualTo(1024);
+        assertThat(cache.statistics().getEvictionCount()).isEqualTo(1);
+
+        char[] large = new char[2000];
+        Arrays.fill(large, 'x');
+        assertThat(cache.put(key(17), new String(large))).isFalse();
+        assertThat(cache.lookup(key(17))).isSameAs(OffHeapCache.ABSENT);
+
+        assertThatThrownBy(() -> new OffHeapCache<>(Codec.utf8(), 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void slabReassignment() {
+        // two slabs of 1MB
+        OffHeapCache<String> cache = new OffHeapCache<>(Codec.utf8(), 2 << 20);
+        // both slabs are divided in chunks of 64 bytes
+        for (int i = 0; i < 40_000; i++) {
+            assertThat(cache.put(key(i), "v" + i)).isTrue();
+        }
+        assertThat(cache.getAllocatedBytes()).isEqualTo(2 << 20);
+        assertThat(cache.size()).isEqualTo(2 * 16384);
+
+        // needs a chunk of 1024 bytes, so a slab is taken from the small values
+        char[] large = new char[1000];
+        Arrays.fill(large, 'x');
+        assertThat(cache.put(key(-1), new String(large))).isTrue();
+        assertThat(cache.lookup(key(-1))).isEqualTo(new String(large));
+        assertThat(cache.getReassignmentCount()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(16384 + 1);
+        assertThat(cache.getAllocatedBytes()).isEqualTo(2 << 20);
+        // the slab of the least recently used value (7616) was taken, which contained the values that replaced the evicted ones too
+        assertThat(cache.lookup(key(7_616))).isSameAs(OffHeapCache.ABSENT);
+        assertThat(cache.lookup(key(39_999))).isSameAs(OffHeapCache.ABSENT);
+        assertThat(cache.lookup(key(20_000))).isEqualTo("v20000");
+
+        // more large values fit in the reassigned slab without another reassignment
+        for (int i = 0; i < 1023; i++) {
+            assertThat(cache.put(key(-2 - i), new String(large))).isTrue();
+        }
+        assertThat(cache.getReassignmentCount()).isEqualTo(1);
+        // and small values still have a slab
+        assertThat(cache.put(key(50_000), "small")).isTrue();
+        assertThat(cache.lookup(key(50_000))).isEqualTo("small");
+    }
+
+    @Test
+    void randomized() {
+        // values of different sizes, so several chunk sizes compete for the slabs
+        OffHeapCache<String> cache = new OffHeapCache<>(Codec.utf8(), 64 * 1024);
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            int k = random.nextInt(2000);
+            Object value = cache.lookup(key(k));
+            if (value == OffHeapCache.ABSENT) {
+                cache.put(key(k), value(k));
+            } else {
+                assertThat(value).isEqualTo(value(k));
+            }
+        }
+        assertThat(cache.getAllocatedBytes()).isLessThanOrEqualTo(64 * 1024);
+        assertThat(cache.statistics().getEvictionCount()).isGreaterThan(0);
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getAllocatedBytes()).isEqualTo(0);
+    }
+
+    private static byte[] key(int i) {
+        return Codec.ofInteger().encode(i);
+    }
+
+    private static String value(int i) {
+        char[] chars = new char[i % 300];
+        Arrays.fill(chars, (char) ('a' + i % 26));
+        return i + new String(chars);
+    }
+}
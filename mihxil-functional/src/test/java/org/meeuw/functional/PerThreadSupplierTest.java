@@ -0,0 +1,67 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PerThreadSupplierTest {
+
+    static class Helper implements AutoCloseable {
+        static final AtomicInteger count = new AtomicInteger();
+        final int id = count.incrementAndGet();
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void perThread() throws Exception {
+        UnwrappableCloseableSupplier<Helper, Supplier<Helper>> perThread = Suppliers.perThread(Helper::new);
+        Helper mine = perThread.get();
+        assertThat(perThread.get()).isSameAs(mine);
+        AtomicReference<Helper> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> other.set(perThread.get()));
+        thread.start();
+        thread.join();
+        assertThat(other.get()).isNotNull().isNotSameAs(mine);
+        assertThat(perThread.toString()).endsWith("(per thread)");
+
+        perThread.close();
+        assertThat(mine.closed).isTrue();
+        assertThat(other.get().closed).isTrue();
+        assertThatThrownBy(perThread::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void valuesOfTerminatedThreadsAreClosed() throws Exception {
+        PerThreadSupplier<Helper> perThread = new PerThreadSupplier<>(Helper::new);
+        List<Helper> created = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            AtomicReference<Helper> helper = new AtomicReference<>();
+            Thread thread = new Thread(() -> helper.set(perThread.get()));
+            thread.start();
+            thread.join();
+            created.add(helper.get());
+        }
+        // the value of the last thread is only pruned on the next creation
+        assertThat(perThread.size()).isLessThanOrEqualTo(1);
+        Helper mine = perThread.get();
+        assertThat(perThread.size()).isEqualTo(1);
+        assertThat(created).allMatch(h -> h.closed);
+        assertThat(mine.closed).isFalse();
+
+        perThread.close();
+        assertThat(mine.closed).isTrue();
+        assertThat(perThread.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,155 @@
+package org.meeuw.functional;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersistentStoreTest {
+
+    @TempDir
+    Path dir;
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void warmRestart() throws IOException {
+        Path file = dir.resolve("squares");
+        Function<Long, String> square = l -> {
+            calls.incrementAndGet();
+            return l == 13 ? null : String.valueOf(l * l);
+        };
+        try (PersistentStore<Long, String> store = PersistentStore.open(file, Codec.ofLong(), Codec.utf8())) {
+            Function<Long, String> memoized = Functions.memoizePersistent(square, store);
+            for (long l = 0; l < 100; l++) {
+                assertThat(memoized.apply(l)).isEqualTo(l == 13 ? null : String.valueOf(l * l));
+            }
+            assertThat(memoized.apply(13L)).isNull();
+            assertThat(memoized.apply(12L)).isEqualTo("144");
+            assertThat(calls.get()).isEqualTo(100);
+            assertThat(((Unwrappable<?>) memoized).unwrap()).isSameAs(square);
+            assertThat(memoized).isEqualTo(Functions.memoizePersistent(square, store));
+        }
+        try (PersistentStore<Long, String> store = PersistentStore.open(file, Codec.ofLong(), Codec.utf8())) {
+            assertThat(store.size()).isEqualTo(100);
+            Function<Long, String> memoized = Functions.memoizePersistent(square, store);
+            for (long l = 0; l < 100; l++) {
+                assertThat(memoized.apply(l)).isEqualTo(l == 13 ? null : String.valueOf(l * l));
+            }
+            assertThat(calls.get()).isEqualTo(100);
+            CacheStatistics statistics = ((Memoized) memoized).statistics();
+            assertThat(statistics.getHitCount()).isEqualTo(100);
+            assertThat(statistics.getMissCount()).isEqualTo(0);
+
+            ((Memoized) memoized).invalidateAll();
+            assertThat(store.size()).isEqualTo(0);
+            assertThat(store.getCommittedLength()).isEqualTo(PersistentStore.HEADER);
+        }
+    }
+
+    @Test
+    void putAndOverwrite() throws IOException {
+        try (PersistentStore<String, Integer> store = PersistentStore.open(dir.resolve("store"), Codec.utf8(), Codec.ofInteger())) {
+            store.put("a", 1);
+            store.put("a", 2);
+            store.put(null, 3);
+            assertThat(store.get("a")).isEqualTo(2);
+            assertThat(store.get(null)).isEqualTo(3);
+            assertThat(store.get("b")).isNull();
+            assertThat(store.containsKey("b")).isFalse();
+            assertThat(store.putIfAbsent("a", 4)).isEqualTo(2);
+            assertThat(store.putIfAbsent("b", 4)).isEqualTo(4);
+            store.flush();
+        }
+        try (PersistentStore<String, Integer> store = PersistentStore.open(dir.resolve("store"), Codec.utf8(), Codec.ofInteger())) {
+            assertThat(store.get("a")).isEqualTo(2);
+            assertThat(store.get(null)).isEqualTo(3);
+            assertThat(store.get("b")).isEqualTo(4);
+            assertThat(store.toString()).endsWith("(utf8 -> integer)");
+        }
+    }
+
+    @Test
+    void growsBeyondInitialMapping() throws IOException {
+        Path file = dir.resolve("large");
+        char[] chars = new char[1000];
+        java.util.Arrays.fill(chars, 'x');
+        String large = new String(chars);
+        try (PersistentStore<Integer, String> store = PersistentStore.open(file, Codec.ofInteger(), Codec.utf8())) {
+            for (int i = 0; i < 500; i++) {
+                store.put(i, large + i);
+            }
+            assertThat(store.getCommittedLength()).isGreaterThan(PersistentStore.INITIAL_SIZE);
+        }
+        try (PersistentStore<Integer, String> store = PersistentStore.open(file, Codec.ofInteger(), Codec.utf8())) {
+            assertThat(store.size()).isEqualTo(500);
+            assertThat(store.get(499)).isEqualTo(large + 499);
+        }
+    }
+
+    @Test
+    void recoversFromTornWrite() throws IOException {
+        Path file = dir.resolve("torn");
+        int lengthAfterTwo;
+        try (PersistentStore<String, String> store = PersistentStore.open(file, Codec.utf8(), Codec.utf8())) {
+            store.put("one", "1");
+            store.put("two", "2");
+            lengthAfterTwo = store.getCommittedLength();
+            store.put("three", "3");
+        }
+        // corrupt the value of the last record, as if the system crashed while it was written
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(lengthAfterTwo + PersistentStore.RECORD_HEADER + "three".length());
+            raf.write('x');
+        }
+        try (PersistentStore<String, String> store = PersistentStore.open(file, Codec.utf8(), Codec.utf8())) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.get("two")).isEqualTo("2");
+            assertThat(store.containsKey("three")).isFalse();
+            assertThat(store.getCommittedLength()).isEqualTo(lengthAfterTwo);
+            store.put("four", "4");
+        }
+        try (PersistentStore<String, String> store = PersistentStore.open(file, Codec.utf8(), Codec.utf8())) {
+            assertThat(store.size()).isEqualTo(3);
+            assertThat(store.get("four")).isEqualTo("4");
+        }
+    }
+
+    @Test
+    void throwing() throws Exception {
+        ThrowingFunction<String, Integer, IOException> parse = s -> {
+            calls.incrementAndGet();
+            if (s.isEmpty()) {
+                throw new IOException("empty");
+            }
+            return s.length();
+        };
+        try (PersistentStore<String, Integer> store = PersistentStore.open(dir.resolve("throwing"), Codec.serializable(), Codec.serializable())) {
+            ThrowingFunction<String, Integer, IOException> memoized = Functions.memoizePersistentThrowing(parse, store);
+            assertThat(memoized.applyWithException("abc")).isEqualTo(3);
+            assertThat(memoized.applyWithException("abc")).isEqualTo(3);
+            assertThatThrownBy(() -> memoized.applyWithException("")).isInstanceOf(IOException.class);
+            assertThat(calls.get()).isEqualTo(2);
+            assertThat(store.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void notAStore() throws IOException {
+        Path file = dir.resolve("other");
+        Files.write(file, "this is not a persistent store".getBytes());
+        assertThatThrownBy(() -> PersistentStore.open(file, Codec.utf8(), Codec.utf8())).isInstanceOf(IOException.class);
+
+        PersistentStore<String, String> store = PersistentStore.open(dir.resolve("closed"), Codec.utf8(), Codec.utf8());
+        store.close();
+        assertThatThrownBy(() -> store.get("a")).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,178 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PoolTest {
+
+    static class Parser implements AutoCloseable {
+        static final AtomicInteger count = new AtomicInteger();
+        final int id = count.incrementAndGet();
+        boolean valid = true;
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    final AtomicLong time = new AtomicLong();
+
+    @Test
+    void borrowAndReturn() throws Exception {
+        try (Pool<Parser> pool = Suppliers.pooled(Parser::new, 2)) {
+            Parser first;
+            try (CloseableSupplier<Parser> lease = pool.get()) {
+                first = lease.get();
+                assertThat(pool.getIdleCount()).isEqualTo(0);
+            }
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+            try (CloseableSupplier<Parser> lease = pool.get()) {
+                assertThat(lease.get()).isSameAs(first);
+                try (CloseableSupplier<Parser> another = pool.get()) {
+                    assertThat(another.get()).isNotSameAs(first);
+                }
+            }
+            assertThat(pool.getIdleCount()).isEqualTo(2);
+            assertThat(pool.getCreateCount()).isEqualTo(2);
+            assertThat(pool.toString()).endsWith("(pooled 2)");
+            assertThat(pool.unwrap()).isNotNull();
+        }
+    }
+
+    @Test
+    void leaseCantBeUsedAfterClose() {
+        Pool<Parser> pool = Suppliers.pooled(Parser::new, 2);
+        CloseableSupplier<Parser> lease = pool.get();
+        lease.get();
+        closeQuietly(pool.get());
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        closeQuietly(lease);
+        closeQuietly(lease);
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+        assertThatThrownBy(lease::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void maxSize() throws Exception {
+        Pool<Parser> pool = Suppliers.pooled(Parser::new, 1);
+        CloseableSupplier<Parser> a = pool.get();
+        Parser aParser = a.get();
+        assertThat(pool.getLeasedCount()).isEqualTo(1);
+        assertThatThrownBy(() -> pool.get(Duration.ofMillis(10))).isInstanceOf(TimeoutException.class);
+
+        AtomicReference<Parser> b = new AtomicReference<>();
+        Thread waiting = new Thread(() -> {
+            CloseableSupplier<Parser> lease = pool.get();
+            b.set(lease.get());
+            closeQuietly(lease);
+        });
+        waiting.start();
+        closeQuietly(a);
+        waiting.join();
+        assertThat(b.get()).isSameAs(aParser);
+        assertThat(pool.getCreateCount()).isEqualTo(1);
+        assertThat(pool.getLeasedCount()).isEqualTo(0);
+        assertThatThrownBy(() -> Suppliers.pooled(Parser::new, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void validation() throws Exception {
+        Pool<Parser> pool = new Pool<>(Parser::new, 2, p -> p.valid, null, time::get);
+        CloseableSupplier<Parser> lease = pool.get();
+        Parser parser = lease.get();
+        parser.valid = false;
+        closeQuietly(lease);
+        assertThat(pool.get().get()).isNotSameAs(parser);
+        assertThat(parser.closed).isTrue();
+    }
+
+    @Test
+    void idleEviction() {
+        Pool<Parser> pool = new Pool<>(Parser::new, 10, p -> true, Duration.ofMinutes(1), time::get);
+        CloseableSupplier<Parser> old = pool.get();
+        CloseableSupplier<Parser> young = pool.get();
+        Parser oldParser = old.get();
+        closeQuietly(old);
+        time.addAndGet(Duration.ofSeconds(30).toNanos());
+        closeQuietly(young);
+        time.addAndGet(Duration.ofSeconds(30).toNanos());
+        pool.evictIdle();
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+        assertThat(oldParser.closed).isTrue();
+        time.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThat(pool.get().get().closed).isFalse();
+        assertThat(pool.getCreateCount()).isEqualTo(3);
+    }
+
+    @Test
+    void close() {
+        Pool<Parser> pool = Suppliers.pooled(Parser::new, 10);
+        CloseableSupplier<Parser> idle = pool.get();
+        CloseableSupplier<Parser> busy = pool.get();
+        Parser idleParser = idle.get();
+        Parser busyParser = busy.get();
+        closeQuietly(idle);
+        pool.close();
+        assertThat(idleParser.closed).isTrue();
+        assertThat(busyParser.closed).isFalse();
+        closeQuietly(busy);
+        assertThat(busyParser.closed).isTrue();
+        assertThatThrownBy(pool::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void concurrent() throws InterruptedException {
+        Pool<Parser> pool = Suppliers.pooled(Parser::new, 4);
+        Set<Parser> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        AtomicInteger shared = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    CloseableSupplier<Parser> lease = pool.get();
+                    if (! inUse.add(lease.get())) {
+                        shared.incrementAndGet();
+                    }
+                    inUse.remove(lease.get());
+                    closeQuietly(lease);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(shared).hasValue(0);
+        assertThat(pool.getIdleCount()).isLessThanOrEqualTo(4);
+        assertThat(pool.getCreateCount() - pool.getDestroyCount()).isLessThanOrEqualTo(4);
+        assertThat(pool.getLeasedCount()).isEqualTo(0);
+    }
+
+    static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.meeuw.functional;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PrefetchingSupplierTest {
+
+    final Queue<Runnable> tasks = new ArrayDeque<>();
+    final Executor executor = tasks::add;
+    final AtomicLong ids = new AtomicLong();
+
+    @Test
+    void prefetching() throws Exception {
+        try (UnwrappableCloseableSupplier<Long, Supplier<Long>> prefetching = Suppliers.prefetching(ids::incrementAndGet, 3, 1, executor)) {
+            PrefetchingSupplier<?, ?> p = (PrefetchingSupplier<?, ?>) prefetching;
+            assertThat(tasks).hasSize(1);
+            tasks.remove().run();
+            // rounded up to 4
+            assertThat(p.available()).isEqualTo(4);
+            assertThat(prefetching.get()).isEqualTo(1);
+            assertThat(prefetching.get()).isEqualTo(2);
+            assertThat(tasks).isEmpty();
+            assertThat(prefetching.get()).isEqualTo(3);
+            // low water mark reached
+            assertThat(tasks).hasSize(1);
+            assertThat(prefetching.get()).isEqualTo(4);
+            // empty, so called directly
+            assertThat(prefetching.get()).isEqualTo(5);
+            tasks.remove().run();
+            assertThat(prefetching.get()).isEqualTo(6);
+            assertThat(prefetching.toString()).endsWith("(prefetching 3)");
+        }
+    }
+
+    @Test
+    void batches() throws Exception {
+        AtomicInteger batchCount = new AtomicInteger();
+        Supplier<List<Long>> batchSource = () -> {
+            batchCount.incrementAndGet();
+            return Arrays.asList(ids.incrementAndGet(), ids.incrementAndGet(), ids.incrementAndGet());
+        };
+        try (UnwrappableCloseableSupplier<Long, Supplier<? extends List<Long>>> prefetching = Suppliers.prefetchingBatches(batchSource, 4, 0, executor)) {
+            tasks.remove().run();
+            // 1, 2, 3 and 4. 5 and 6 are pending.
+            assertThat(batchCount).hasValue(2);
+            for (long i = 1; i <= 4; i++) {
+                assertThat(prefetching.get()).isEqualTo(i);
+            }
+            assertThat(tasks).hasSize(1);
+            // empty buffer, and the refill didn't run yet, so waiting for it
+            CompletableFuture<Long> next = CompletableFuture.supplyAsync(prefetching);
+            Thread.sleep(10);
+            assertThat(next).isNotDone();
+            tasks.remove().run();
+            assertThat(next.get(10, TimeUnit.SECONDS)).isEqualTo(5);
+            assertThat(prefetching.get()).isEqualTo(6);
+            assertThat(prefetching.unwrap()).isSameAs(batchSource);
+        }
+    }
+
+    @Test
+    void batchesFilledByCaller() {
+        Supplier<List<Long>> batchSource = () -> Arrays.asList(ids.incrementAndGet(), ids.incrementAndGet());
+        Executor rejecting = r -> {
+            throw new RejectedExecutionException();
+        };
+        UnwrappableCloseableSupplier<Long, Supplier<? extends List<Long>>> prefetching = Suppliers.prefetchingBatches(batchSource, 8, 0, rejecting);
+        assertThat(prefetching.get()).isEqualTo(1);
+        assertThat(prefetching.get()).isEqualTo(2);
+        assertThat(prefetching.get()).isEqualTo(3);
+        assertThatThrownBy(() -> Suppliers.prefetchingBatches(Collections::emptyList, 8, 0, rejecting).get()).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void emptyBatchDoesNotSpin() {
+        AtomicInteger batchCount = new AtomicInteger();
+        AtomicInteger refills = new AtomicInteger();
+        Supplier<List<Long>> batchSource = () -> batchCount.incrementAndGet() == 1 ? Arrays.asList(ids.incrementAndGet(), ids.incrementAndGet()) : Collections.emptyList();
+        Executor direct = r -> {
+            refills.incrementAndGet();
+            r.run();
+        };
+        UnwrappableCloseableSupplier<Long, Supplier<? extends List<Long>>> prefetching = Suppliers.prefetchingBatches(batchSource, 8, 4, direct);
+        // the first refill stopped at the empty second batch. It was below the low-water mark, so it started another one, which got an empty batch, and did not start another one.
+        assertThat(refills).hasValue(2);
+        assertThat(batchCount).hasValue(3);
+        assertThat(prefetching.get()).isEqualTo(1);
+        assertThat(refills).hasValue(3);
+        assertThat(batchCount).hasValue(4);
+    }
+
+    @Test
+    void consumedValuesAreReleased() throws Exception {
+        try (UnwrappableCloseableSupplier<Object, Supplier<Object>> prefetching = Suppliers.prefetching(Object::new, 4, 0, executor)) {
+            tasks.remove().run();
+            WeakReference<Object> consumed = new WeakReference<>(prefetching.get());
+            for (int i = 0; i < 10 && consumed.get() != null; i++) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertThat(consumed.get()).isNull();
+        }
+    }
+
+    @Test
+    void nullsAreRejected() throws Exception {
+        Queue<Long> values = new LinkedList<>(Arrays.asList(1L, null, 2L));
+        List<Throwable> uncaught = new ArrayList<>();
+        Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+        Thread.currentThread().setUncaughtExceptionHandler((t, e) -> uncaught.add(e));
+        try (UnwrappableCloseableSupplier<Long, Supplier<Long>> prefetching = Suppliers.prefetching(values::poll, 4, 0, executor)) {
+            tasks.remove().run();
+            // the refill stopped at the null
+            assertThat(uncaught).singleElement().isInstanceOf(NullPointerException.class);
+            assertThat(prefetching.get()).isEqualTo(1);
+            assertThat(prefetching.get()).isEqualTo(2);
+            // empty, so called directly
+            assertThatThrownBy(prefetching::get).isInstanceOf(NullPointerException.class);
+        } finally {
+            Thread.currentThread().setUncaughtExceptionHandler(handler);
+        }
+        Supplier<List<Long>> batchSource = () -> Arrays.asList(ids.incrementAndGet(), null);
+        Executor rejecting = r -> {
+            throw new RejectedExecutionException();
+        };
+        UnwrappableCloseableSupplier<Long, Supplier<? extends List<Long>>> batches = Suppliers.prefetchingBatches(batchSource, 8, 0, rejecting);
+        assertThatThrownBy(batches::get).isInstanceOf(NullPointerException.class);
+    }
+
+    @Test
+    void waitingForRefillDoesNotSpin() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<Long>> batchSource = () -> {
+            fetching.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return Arrays.asList(ids.incrementAndGet(), ids.incrementAndGet());
+        };
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        try (UnwrappableCloseableSupplier<Long, Supplier<? extends List<Long>>> prefetching = Suppliers.prefetchingBatches(batchSource, 4, 0, service)) {
+            assertThat(fetching.await(10, TimeUnit.SECONDS)).isTrue();
+            Thread consumer = new Thread(prefetching::get);
+            consumer.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (consumer.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            // parked, not yielding
+            assertThat(consumer.getState()).isEqualTo(Thread.State.WAITING);
+            release.countDown();
+            consumer.join(10_000);
+            assertThat(consumer.isAlive()).isFalse();
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        try (UnwrappableCloseableSupplier<Long, Supplier<Long>> prefetching = Suppliers.prefetching(ids::incrementAndGet, 64, 16, service)) {
+            Set<Long> seen = ConcurrentHashMap.newKeySet();
+            AtomicInteger duplicates = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        if (! seen.add(prefetching.get())) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertThat(duplicates).hasValue(0);
+            assertThat(seen).hasSize(80_000);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void illegalArguments() {
+        assertThatThrownBy(() -> Suppliers.prefetching(ids::incrementAndGet, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Suppliers.prefetching(ids::incrementAndGet, 4, 4, executor)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
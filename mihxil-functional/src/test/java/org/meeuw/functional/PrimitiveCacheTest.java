@@ -0,0 +1,157 @@
+package org.meeuw.functional;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PrimitiveCacheTest {
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void memoizeInt() {
+        IntFunction<String> toString = i -> {
+            calls.incrementAndGet();
+            return i == 0 ? null : "#" + i;
+        };
+        IntFunction<String> memoized = Functions.memoizeInt(toString);
+        assertThat(memoized.apply(1)).isEqualTo("#1");
+        assertThat(memoized.apply(1)).isEqualTo("#1");
+        assertThat(memoized.apply(-1)).isEqualTo("#-1");
+        assertThat(memoized.apply(0)).isNull();
+        assertThat(memoized.apply(0)).isNull();
+        assertThat(calls.get()).isEqualTo(3);
+
+        assertThat(memoized).isEqualTo(Functions.memoizeInt(toString));
+        assertThat(memoized).hasSameHashCodeAs(Functions.memoizeInt(toString));
+        assertThat(memoized).isNotEqualTo(Functions.memoizeInt(toString, 10));
+        assertThat(((Unwrappable<?>) memoized).unwrap()).isSameAs(toString);
+        assertThat(memoized.toString()).endsWith("(memoizeInt 1024)");
+
+        CacheStatistics statistics = ((Memoized) memoized).statistics();
+        assertThat(statistics.getHitCount()).isEqualTo(2);
+        assertThat(statistics.getMissCount()).isEqualTo(3);
+        assertThat(statistics.getSize()).isEqualTo(3);
+        ((Memoized) memoized).invalidateAll();
+        memoized.apply(1);
+        assertThat(calls.get()).isEqualTo(4);
+    }
+
+    @Test
+    void memoizeLong() {
+        LongFunction<Long> square = l -> {
+            calls.incrementAndGet();
+            return l * l;
+        };
+        LongFunction<Long> memoized = Functions.memoizeLong(square, 100);
+        assertThat(memoized.apply(Long.MAX_VALUE)).isEqualTo(1L);
+        assertThat(memoized.apply(Long.MAX_VALUE)).isEqualTo(1L);
+        assertThat(memoized.apply(3_000_000_000L)).isEqualTo(9_000_000_000_000_000_000L);
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(memoized.toString()).endsWith("(memoizeLong 100)");
+    }
+
+    @Test
+    void memoizeToIntAndToLong() {
+        ToIntFunction<String> length = s -> {
+            calls.incrementAndGet();
+            return s == null ? -1 : s.length();
+        };
+        ToIntFunction<String> memoizedLength = Functions.memoizeToInt(length);
+        assertThat(memoizedLength.applyAsInt("abc")).isEqualTo(3);
+        assertThat(memoizedLength.applyAsInt("abc")).isEqualTo(3);
+        assertThat(memoizedLength.applyAsInt(null)).isEqualTo(-1);
+        assertThat(memoizedLength.applyAsInt(null)).isEqualTo(-1);
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(((Unwrappable<?>) memoizedLength).unwrap()).isSameAs(length);
+
+        ToLongFunction<String> parse = s -> {
+            calls.incrementAndGet();
+            return Long.parseLong(s);
+        };
+        ToLongFunction<String> memoizedParse = Functions.memoizeToLong(parse, 10);
+        assertThat(memoizedParse.applyAsLong("-12345678901")).isEqualTo(-12345678901L);
+        assertThat(memoizedParse.applyAsLong("-12345678901")).isEqualTo(-12345678901L);
+        assertThatThrownBy(() -> memoizedParse.applyAsLong("x")).isInstanceOf(NumberFormatException.class);
+        assertThat(calls.get()).isEqualTo(4);
+        assertThat(((Memoized) memoizedParse).statistics().getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void clock() {
+        PrimitiveCache.LongKeyed<Long> cache = new PrimitiveCache.LongKeyed<>(3);
+        LongFunction<Long> loader = l -> {
+            calls.incrementAndGet();
+            return l;
+        };
+        cache.get(1, loader);
+        cache.get(2, loader);
+        cache.get(3, loader);
+        // 1 and 3 get a second chance
+        cache.get(1, loader);
+        cache.get(3, loader);
+        cache.get(4, loader);
+        assertThat(calls.get()).isEqualTo(4);
+        cache.get(1, loader);
+        cache.get(3, loader);
+        cache.get(4, loader);
+        assertThat(calls.get()).isEqualTo(4);
+        cache.get(2, loader);
+        assertThat(calls.get()).isEqualTo(5);
+        assertThat(cache.statistics().getEvictionCount()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(3);
+
+        assertThatThrownBy(() -> new PrimitiveCache.LongKeyed<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void randomized() {
+        // many insertions and evictions, to exercise growing the tables and backward shift deletion
+        PrimitiveCache.ToLong<Integer> cache = new PrimitiveCache.ToLong<>(300);
+        Random random = new Random(2);
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(1000);
+            assertThat(cache.get(key, k -> k * 7L)).isEqualTo(key * 7L);
+        }
+        assertThat(cache.size()).isLessThanOrEqualTo(300);
+        CacheStatistics statistics = cache.statistics();
+        assertThat(statistics.getMissCount() - statistics.getEvictionCount()).isEqualTo(cache.size());
+    }
+
+    @Test
+    void hitsDoNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        String[] values = new String[500];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "v" + i;
+        }
+        IntFunction<String> memoized = Functions.memoizeInt(i -> values[i - 10_000]);
+        int sum = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sum += memoized.apply(10_000 + i % 500).length();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            sum += memoized.apply(10_000 + i % 500).length();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        System.out.printf("allocated %,d bytes for 100000 hits (%d)%n", allocated, sum);
+        // boxing the keys beyond the Integer cache would be at least 1.6 MB
+        assertThat(allocated).isLessThan(10_000);
+    }
+}
@@ -0,0 +1,52 @@
+package org.meeuw.functional;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReclaimableSupplierTest {
+
+    @Test
+    void softMemoize() {
+        AtomicInteger calls = new AtomicInteger();
+        ReclaimableSupplier<int[]> memoize = Suppliers.softMemoize(() -> new int[] {calls.incrementAndGet()});
+        int[] value = memoize.get();
+        assertThat(memoize.get()).isSameAs(value);
+        assertThat(calls).hasValue(1);
+        assertThat(memoize.getReclaimCount()).isEqualTo(0);
+        assertThat(memoize.getRecomputeCount()).isEqualTo(0);
+        assertThat(memoize.toString()).endsWith("(soft memoize)");
+    }
+
+    @Test
+    void weakMemoizeNull() {
+        AtomicInteger calls = new AtomicInteger();
+        ReclaimableSupplier<String> memoize = Suppliers.weakMemoize(() -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        assertThat(memoize.get()).isNull();
+        System.gc();
+        assertThat(memoize.get()).isNull();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void weakMemoizeReclaimed() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        ReclaimableSupplier<int[]> memoize = Suppliers.weakMemoize(() -> new int[] {calls.incrementAndGet()});
+        assertThat(memoize.get()[0]).isEqualTo(1);
+        for (int i = 0; i < 100 && memoize.getReclaimCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(memoize.getReclaimCount()).isEqualTo(1);
+        assertThat(memoize.getRecomputeCount()).isEqualTo(0);
+
+        assertThat(memoize.get()[0]).isEqualTo(2);
+        assertThat(memoize.getRecomputeCount()).isEqualTo(1);
+        assertThat(calls).hasValue(2);
+    }
+}
@@ -0,0 +1,136 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshingSupplierTest {
+
+    final AtomicLong time = new AtomicLong();
+    final Queue<Runnable> tasks = new ArrayDeque<>();
+    final Executor executor = tasks::add;
+
+    @Test
+    void refreshInBackground() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Exception> failures = new ArrayList<>();
+        RefreshingSupplier<Integer> refreshing = new RefreshingSupplier<>(calls::incrementAndGet, Duration.ofSeconds(1), executor, failures::add, time::get);
+
+        assertThat(refreshing.get()).isEqualTo(1);
+        assertThat(tasks).isEmpty();
+
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(refreshing.get()).isEqualTo(1);
+        assertThat(refreshing.get()).isEqualTo(1);
+        // only one refresh is triggered
+        assertThat(tasks).hasSize(1);
+        tasks.remove().run();
+        assertThat(refreshing.get()).isEqualTo(2);
+        assertThat(tasks).isEmpty();
+
+        refreshing.close();
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(refreshing.get()).isEqualTo(2);
+        assertThat(tasks).isEmpty();
+        assertThat(failures).isEmpty();
+        assertThat(refreshing.unwrap()).isNotNull();
+    }
+
+    @Test
+    void failureKeepsLastGoodValue() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Exception> failures = new ArrayList<>();
+        RefreshingSupplier<Integer> refreshing = new RefreshingSupplier<>(() -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("backend down");
+            }
+            return calls.get();
+        }, Duration.ofSeconds(1), executor, failures::add, time::get);
+
+        assertThat(refreshing.get()).isEqualTo(1);
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        refreshing.get();
+        tasks.remove().run();
+        assertThat(failures).hasSize(1);
+        assertThat(failures.get(0)).hasMessage("backend down");
+        assertThat(refreshing.get()).isEqualTo(1);
+        // no new attempt before the interval passed again
+        assertThat(tasks).isEmpty();
+
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        refreshing.get();
+        tasks.remove().run();
+        assertThat(refreshing.get()).isEqualTo(3);
+    }
+
+    @Test
+    void slowFirstLoadDoesNotOverwriteRefresh() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        RefreshingSupplier<Integer> refreshing = new RefreshingSupplier<>(() -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                firstStarted.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return call;
+        }, Duration.ofSeconds(1), executor, e -> {}, time::get);
+
+        AtomicInteger first = new AtomicInteger();
+        Thread getter = new Thread(() -> first.set(refreshing.get()));
+        getter.start();
+        firstStarted.await();
+        // as a scheduled refresh would
+        refreshing.refresh();
+        proceed.countDown();
+        getter.join();
+
+        assertThat(first).hasValue(2);
+        assertThat(refreshing.get()).isEqualTo(2);
+    }
+
+    @Test
+    void illegalInterval() {
+        assertThatThrownBy(() -> Suppliers.refreshing(() -> 1, null, executor)).isInstanceOf(NullPointerException.class).hasMessage("interval");
+        assertThatThrownBy(() -> Suppliers.refreshing(() -> 1, Duration.ZERO, executor)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Suppliers.refreshing(() -> 1, Duration.ofSeconds(-1), executor)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void scheduled() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            // when the third call starts, the second one completed
+            CountDownLatch refreshed = new CountDownLatch(3);
+            Supplier<Integer> supplier = () -> {
+                refreshed.countDown();
+                return calls.incrementAndGet();
+            };
+            try (UnwrappableCloseableSupplier<Integer, Supplier<Integer>> refreshing = Suppliers.refreshing(supplier, Duration.ofMillis(10), scheduler)) {
+                assertThat(refreshing.get()).isGreaterThanOrEqualTo(1);
+                assertThat(refreshed.await(10, TimeUnit.SECONDS)).isTrue();
+                assertThat(refreshing.get()).isGreaterThanOrEqualTo(2);
+                assertThat(refreshing.toString()).endsWith("(refreshing PT0.01S)");
+            }
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
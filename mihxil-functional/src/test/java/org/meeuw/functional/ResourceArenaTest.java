@@ -0,0 +1,121 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResourceArenaTest {
+
+    final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    class Resource implements CloseableSupplier<String> {
+        final String name;
+        final boolean failOnClose;
+
+        Resource(String name, boolean failOnClose) {
+            this.name = name;
+            this.failOnClose = failOnClose;
+        }
+
+        Resource(String name) {
+            this(name, false);
+        }
+
+        @Override
+        public String get() {
+            events.add("open " + name);
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        @Override
+        public void close() throws Exception {
+            events.add("close " + name);
+            if (failOnClose) {
+                throw new IllegalStateException("could not close " + name);
+            }
+        }
+    }
+
+    @Test
+    void onlyUsedResourcesAreClosedInReverseOrder() throws Exception {
+        Supplier<String> a, c;
+        try (ResourceArena arena = new ResourceArena()) {
+            a = arena.open(new Resource("a"));
+            Supplier<String> b = arena.open(new Resource("b"));
+            c = arena.open(() -> {
+                events.add("open c");
+                return "c";
+            }, v -> events.add("close " + v));
+            assertThat(events).isEmpty();
+            assertThat(c.get()).isEqualTo("c");
+            assertThat(a.get()).isEqualTo("a");
+            assertThat(a.get()).isEqualTo("a");
+            assertThat(arena.size()).isEqualTo(2);
+            assertThat(a.toString()).isEqualTo("a(in arena)");
+        }
+        assertThat(events).containsExactly("open c", "open a", "close a", "close c");
+        assertThatThrownBy(a::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void exceptionsAreAggregated() {
+        ResourceArena arena = new ResourceArena();
+        arena.open(new Resource("a", true)).get();
+        arena.open(new Resource("b")).get();
+        arena.open(new Resource("c", true)).get();
+        assertThatThrownBy(arena::close)
+            .hasMessage("could not close c")
+            .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1)
+                .allSatisfy(s -> assertThat(s).hasMessage("could not close a")));
+        assertThat(events).endsWith("close c", "close b", "close a");
+    }
+
+    @Test
+    void closedWhileCreating() {
+        ResourceArena arena = new ResourceArena();
+        Supplier<String> closing = arena.open(() -> {
+            try {
+                arena.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            events.add("open a");
+            return "a";
+        }, a -> events.add("close " + a));
+        assertThatThrownBy(closing::get).isInstanceOf(IllegalStateException.class);
+        assertThat(events).containsExactly("open a", "close a");
+        assertThat(arena.size()).isEqualTo(0);
+    }
+
+    @Test
+    void parallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ResourceArena arena = new ResourceArena(executor);
+            arena.open(new Resource("a", true)).get();
+            arena.open(new Resource("b")).get();
+            arena.open(new Resource("c", true)).get();
+            arena.open(new Resource("d"));
+            assertThatThrownBy(arena::close)
+                .isInstanceOf(IllegalStateException.class)
+                .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+            assertThat(events).contains("close a", "close b", "close c").doesNotContain("close d", "open d");
+            assertThat(arena.toString()).isEqualTo("arena of 0 resources (closed)");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.meeuw.functional;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScopeTest {
+
+    final AtomicInteger calls = new AtomicInteger();
+    final Supplier<Integer> scoped = Suppliers.scoped(calls::incrementAndGet);
+
+    @Test
+    void withoutScope() {
+        assertThat(Scope.current()).isEmpty();
+        assertThat(scoped.get()).isEqualTo(1);
+        assertThat(scoped.get()).isEqualTo(2);
+        assertThat(scoped.toString()).endsWith("(scoped)");
+    }
+
+    @Test
+    void perScope() throws Exception {
+        try (Scope scope = Scope.open()) {
+            assertThat(Scope.current()).contains(scope);
+            assertThat(scoped.get()).isEqualTo(1);
+            assertThat(scoped.get()).isEqualTo(1);
+            assertThat(scope.size()).isEqualTo(1);
+        }
+        assertThat(Scope.current()).isEmpty();
+        try (Scope scope = Scope.open()) {
+            assertThat(scoped.get()).isEqualTo(2);
+            try (Scope nested = Scope.open()) {
+                assertThat(scoped.get()).isEqualTo(3);
+            }
+            assertThat(Scope.current()).contains(scope);
+            assertThat(scoped.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void closesValues() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        Supplier<AutoCloseable> resource = Suppliers.scoped(() -> () -> closed.set(true));
+        Scope scope = Scope.open();
+        resource.get();
+        scope.close();
+        assertThat(closed.get()).isTrue();
+        assertThat(scope.size()).isEqualTo(0);
+        assertThat(scope.isClosed()).isTrue();
+        assertThat(scope.toString()).isEqualTo("scope of 0 values (closed)");
+    }
+
+    @Test
+    void notInheritedByNewThreads() throws Exception {
+        try (Scope scope = Scope.open()) {
+            assertThat(scoped.get()).isEqualTo(1);
+            AtomicReference<Integer> inThread = new AtomicReference<>();
+            Thread thread = new Thread(() -> inThread.set(scoped.get()));
+            thread.start();
+            thread.join();
+            assertThat(inThread.get()).isEqualTo(2);
+
+            Thread wrapped = new Thread(scope.wrap(() -> inThread.set(scoped.get())));
+            wrapped.start();
+            wrapped.join();
+            assertThat(inThread.get()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void propagatedToExecutor() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // make sure the pool thread exists before the scope is opened
+            pool.submit(() -> {}).get();
+            try (Scope scope = Scope.open()) {
+                assertThat(scoped.get()).isEqualTo(1);
+                assertThat(pool.submit(scoped::get).get()).isEqualTo(2);
+                assertThat(pool.submit(scope.wrap(scoped::get)).get()).isEqualTo(1);
+
+                CompletableFuture<Integer> future = CompletableFuture.supplyAsync(scoped, scope.executor(pool));
+                assertThat(future.get()).isEqualTo(1);
+            }
+            // the pool thread doesn't keep the scope
+            assertThat(pool.submit(() -> Scope.current().isPresent()).get()).isFalse();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void notLeakedToPoolThreads() throws Exception {
+        ExecutorService pool;
+        try (Scope scope = Scope.open()) {
+            // thread created inside the scope
+            pool = Executors.newSingleThreadExecutor();
+            assertThat(pool.submit(() -> Scope.current().isPresent()).get()).isFalse();
+            assertThat(pool.submit(scope.wrap(scoped::get)).get()).isEqualTo(1);
+        }
+        try {
+            assertThat(pool.submit(scoped::get).get()).isEqualTo(2);
+            assertThat(pool.submit(scoped::get).get()).isEqualTo(3);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void closedByAnotherThread() throws Exception {
+        try (Scope outer = Scope.open()) {
+            Scope inner = Scope.open();
+            assertThat(scoped.get()).isEqualTo(1);
+            CompletableFuture.runAsync(() -> {
+                try {
+                    inner.close();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }).get(10, TimeUnit.SECONDS);
+            // the outer scope is current again on this thread
+            assertThat(Scope.current()).contains(outer);
+            assertThat(scoped.get()).isEqualTo(2);
+            assertThat(scoped.get()).isEqualTo(2);
+            assertThat(outer.size()).isEqualTo(1);
+        }
+        assertThat(Scope.current()).isEmpty();
+    }
+
+    @Test
+    void closedWhileCalculating() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        CountDownLatch calculating = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        Supplier<AutoCloseable> resource = () -> {
+            calculating.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return () -> closed.set(true);
+        };
+        Scope scope = Scope.open();
+        CompletableFuture<AutoCloseable> future = CompletableFuture.supplyAsync(() -> scope.get(resource));
+        calculating.await();
+        scope.close();
+        proceed.countDown();
+        assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(closed.get()).isTrue();
+        assertThat(scope.size()).isEqualTo(0);
+    }
+}
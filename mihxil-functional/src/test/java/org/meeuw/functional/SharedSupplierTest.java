@@ -0,0 +1,144 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedSupplierTest {
+
+    final AtomicInteger created = new AtomicInteger();
+    final AtomicInteger closed = new AtomicInteger();
+
+    final CloseableSupplier<String> resource = new CloseableSupplier<String>() {
+        @Override
+        public String get() {
+            return "index " + created.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            return "resource";
+        }
+    };
+
+    @Test
+    void lastReleaseCloses() throws Exception {
+        SharedSupplier<String> shared = Suppliers.shared(resource);
+        assertThat(shared.isOpen()).isFalse();
+        assertThat(created.get()).isEqualTo(0);
+
+        CloseableSupplier<String> a = shared.acquire();
+        CloseableSupplier<String> b = shared.get();
+        assertThat(a.get()).isEqualTo("index 1");
+        assertThat(b.get()).isEqualTo("index 1");
+        assertThat(shared.getReferenceCount()).isEqualTo(2);
+        assertThat(shared.toString()).isEqualTo("resource(shared by 2)");
+        assertThat(shared.unwrap()).isSameAs(resource);
+
+        a.close();
+        a.close(); // idempotent
+        assertThat(shared.getReferenceCount()).isEqualTo(1);
+        assertThat(closed.get()).isEqualTo(0);
+        assertThatThrownBy(a::get).isInstanceOf(IllegalStateException.class);
+
+        b.close();
+        assertThat(closed.get()).isEqualTo(1);
+        assertThat(shared.isOpen()).isFalse();
+
+        try (CloseableSupplier<String> c = shared.acquire()) {
+            assertThat(c.get()).isEqualTo("index 2");
+        }
+        assertThat(closed.get()).isEqualTo(2);
+    }
+
+    @Test
+    void linger() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SharedSupplier<String> shared = Suppliers.shared(resource, Duration.ofHours(1), scheduler);
+            shared.acquire().close();
+            assertThat(shared.isOpen()).isTrue();
+            try (CloseableSupplier<String> again = shared.acquire()) {
+                assertThat(again.get()).isEqualTo("index 1");
+            }
+            assertThat(created.get()).isEqualTo(1);
+            assertThat(closed.get()).isEqualTo(0);
+
+            shared.close();
+            assertThat(closed.get()).isEqualTo(1);
+            assertThatThrownBy(shared::acquire).isInstanceOf(IllegalStateException.class);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void lingerExpires() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            SharedSupplier<String> shared = Suppliers.shared(resource, Duration.ofMillis(10), scheduler);
+            shared.acquire().close();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (shared.isOpen() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(shared.isOpen()).isFalse();
+            assertThat(closed.get()).isEqualTo(1);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void closeWhileInUse() throws Exception {
+        SharedSupplier<String> shared = Suppliers.shared(resource);
+        CloseableSupplier<String> handle = shared.acquire();
+        shared.close();
+        assertThat(closed.get()).isEqualTo(0);
+        assertThat(handle.get()).isEqualTo("index 1");
+        handle.close();
+        assertThat(closed.get()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrently() throws Exception {
+        SharedSupplier<String> shared = Suppliers.shared(resource);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CloseableSupplier<String> keep = shared.acquire();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        try (CloseableSupplier<String> handle = shared.acquire()) {
+                            assertThat(handle.get()).isEqualTo("index 1");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertThat(shared.getReferenceCount()).isEqualTo(1);
+            keep.close();
+            assertThat(created.get()).isEqualTo(1);
+            assertThat(closed.get()).isEqualTo(1);
+            assertThat(shared.getReferenceCount()).isEqualTo(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedSupplierTest {
+
+    static class Counter implements AutoCloseable {
+        int value = 0;
+        boolean busy = false;
+        volatile boolean closed = false;
+        int closeCount = 0;
+
+        @Override
+        public void close() {
+            closed = true;
+            closeCount++;
+        }
+    }
+
+    @Test
+    void stripes() {
+        assertThat(Suppliers.striped(Counter::new, 1).getStripeCount()).isEqualTo(1);
+        assertThat(Suppliers.striped(Counter::new, 3).getStripeCount()).isEqualTo(4);
+        assertThat(Suppliers.striped(Counter::new, 4).getStripeCount()).isEqualTo(4);
+        assertThat(Suppliers.striped(Counter::new).getStripeCount()).isGreaterThanOrEqualTo(Runtime.getRuntime().availableProcessors());
+        assertThatThrownBy(() -> Suppliers.striped(Counter::new, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(Suppliers.striped(Counter::new, 2).toString()).endsWith("(striped 2)");
+    }
+
+    @Test
+    void exclusiveApply() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        StripedSupplier<Counter> striped = Suppliers.striped(() -> {
+            created.incrementAndGet();
+            return new Counter();
+        }, 4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    striped.apply(c -> {
+                        if (c.busy) {
+                            overlaps.incrementAndGet();
+                        }
+                        c.busy = true;
+                        c.value++;
+                        c.busy = false;
+                        return c.value;
+                    });
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(overlaps).hasValue(0);
+        assertThat(created.get()).isBetween(1, 4);
+
+        Counter counter = striped.get();
+        assertThat(striped.get()).isSameAs(counter);
+        striped.close();
+        assertThat(counter.closed).isTrue();
+        assertThatThrownBy(striped::get).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void notClosedWhileApplied() throws Exception {
+        StripedSupplier<Counter> striped = Suppliers.striped(Counter::new, 1);
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean closedWhileApplied = new AtomicBoolean();
+        Thread user = new Thread(() -> striped.apply(c -> {
+            applying.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            closedWhileApplied.set(c.closed);
+            return c;
+        }));
+        user.start();
+        assertThat(applying.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread closer = new Thread(() -> {
+            try {
+                striped.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        closer.start();
+        Thread.sleep(50);
+        release.countDown();
+        user.join(10_000);
+        closer.join(10_000);
+        assertThat(closedWhileApplied).isFalse();
+        assertThatThrownBy(() -> striped.apply(c -> c)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void closeTwice() throws Exception {
+        StripedSupplier<Counter> striped = Suppliers.striped(Counter::new, 2);
+        Counter counter = striped.get();
+        striped.close();
+        striped.close();
+        assertThat(counter.closeCount).isEqualTo(1);
+    }
+
+    @Test
+    void equalsIncludesStripeCount() {
+        Supplier<Counter> supplier = Counter::new;
+        assertThat(Suppliers.striped(supplier, 2)).isEqualTo(Suppliers.striped(supplier, 2));
+        assertThat(Suppliers.striped(supplier, 2).hashCode()).isEqualTo(Suppliers.striped(supplier, 2).hashCode());
+        assertThat(Suppliers.striped(supplier, 2)).isNotEqualTo(Suppliers.striped(supplier, 8));
+    }
+}
@@ -1,6 +1,11 @@
 package org.meeuw.functional;
 
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -10,6 +15,7 @@ import org.junit.jupiter.api.parallel.ExecutionMode;
 
 import static java.lang.Thread.sleep;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * @author Michiel Meeuwissen
@@ -58,6 +64,9 @@ class SuppliersTest {
         try (UnwrappableCloseableSupplier<Integer, Supplier<Integer>> memoize = Suppliers.memoize(isup)) {
             assertThat(memoize.get()).isEqualTo(1);
             Supplier<Integer> another = Suppliers.memoize(isup);
+            // equals doesn't evaluate, and another is not evaluated yet
+            assertThat(memoize.equals(another)).isFalse();
+            another.get();
             assertThat(memoize.equals(another)).isTrue();
 
             assertThat(memoize.equals("")).isFalse();
@@ -121,6 +130,169 @@ class SuppliersTest {
 
     }
 
+    @Test
+    void memoizeEqualsDoesNotEvaluate() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Integer> supplier = calls::incrementAndGet;
+        Suppliers.MemoizeSupplier<Integer> a = new Suppliers.MemoizeSupplier<>(supplier);
+        Suppliers.MemoizeSupplier<Integer> b = new Suppliers.MemoizeSupplier<>(supplier);
+        Set<Supplier<Integer>> set = new HashSet<>();
+        set.add(a);
+        set.add(b);
+        assertThat(set).hasSize(1);
+        assertThat(a.isEvaluated()).isFalse();
+        assertThat(calls).hasValue(0);
+
+        assertThat(a.get()).isEqualTo(1);
+        assertThat(a.isEvaluated()).isTrue();
+        assertThat(a).isNotEqualTo(b);
+        assertThat(a).hasSameHashCodeAs(b);
+    }
+
+    @Test
+    void memoizeNull() {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> memoize = Suppliers.memoize(() -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        assertThat(memoize.get()).isNull();
+        assertThat(memoize.get()).isNull();
+        assertThat(calls).hasValue(1);
+    }
+
+    /**
+     * Shows the throughput of a memoized supplier for 1 to 64 concurrent threads, while checking that the wrapped supplier is called only once.
+     */
+    @Test
+    void memoizeContention() throws InterruptedException {
+        final int calls = 100_000;
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            AtomicInteger evaluations = new AtomicInteger();
+            Supplier<Integer> memoize = Suppliers.memoize(() -> {
+                evaluations.incrementAndGet();
+                return 1;
+            });
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicLong sum = new AtomicLong();
+            List<Thread> list = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    long s = 0;
+                    for (int c = 0; c < calls; c++) {
+                        s += memoize.get();
+                    }
+                    sum.addAndGet(s);
+                });
+                thread.start();
+                list.add(thread);
+            }
+            long nanos = System.nanoTime();
+            start.countDown();
+            for (Thread thread : list) {
+                thread.join();
+            }
+            nanos = System.nanoTime() - nanos;
+            assertThat(evaluations).hasValue(1);
+            assertThat(sum).hasValue((long) threads * calls);
+            System.out.printf("%2d threads: %,d gets/ms%n", threads, (long) threads * calls * 1_000_000 / Math.max(1, nanos));
+        }
+    }
+
+    @Test
+    void memoizeWithTtl() {
+        AtomicLong time = new AtomicLong();
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Integer> memoize = new Suppliers.ExpiringMemoizeSupplier<>(calls::incrementAndGet, Duration.ofSeconds(1), null, time::get);
+
+        assertThat(memoize.get()).isEqualTo(1);
+        time.addAndGet(Duration.ofMillis(999).toNanos());
+        assertThat(memoize.get()).isEqualTo(1);
+        time.addAndGet(Duration.ofMillis(1).toNanos());
+        assertThat(memoize.get()).isEqualTo(2);
+        assertThat(memoize.get()).isEqualTo(2);
+        assertThat(calls).hasValue(2);
+
+        assertThat(memoize.toString()).startsWith("org.meeuw").endsWith("(memoize PT1S)");
+        assertThat(Suppliers.memoize(Suppliers.always("a"), Duration.ofSeconds(1)))
+            .isEqualTo(Suppliers.memoize(Suppliers.always("a"), Duration.ofSeconds(1)))
+            .hasSameHashCodeAs(Suppliers.memoize(Suppliers.always("a"), Duration.ofSeconds(1)))
+            .isNotEqualTo(Suppliers.memoize(Suppliers.always("a"), Duration.ofSeconds(2)))
+            .isNotEqualTo(Suppliers.memoize(Suppliers.always("a"), Duration.ofSeconds(1), Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void memoizeWithTtlReloadsInOneThread() throws Exception {
+        AtomicLong time = new AtomicLong();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch reloading = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        Supplier<Integer> memoize = new Suppliers.ExpiringMemoizeSupplier<>(() -> {
+            int call = calls.incrementAndGet();
+            if (call > 1) {
+                reloading.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return call;
+        }, Duration.ofSeconds(1), Duration.ofSeconds(10), time::get);
+
+        assertThat(memoize.get()).isEqualTo(1);
+        time.addAndGet(Duration.ofSeconds(2).toNanos());
+        AtomicInteger reloaded = new AtomicInteger();
+        Thread reloader = new Thread(() -> reloaded.set(memoize.get()));
+        reloader.start();
+        reloading.await();
+        // the reload is in progress, the stale value is supplied meanwhile
+        assertThat(memoize.get()).isEqualTo(1);
+        proceed.countDown();
+        reloader.join();
+        assertThat(reloaded).hasValue(2);
+        assertThat(memoize.get()).isEqualTo(2);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void memoizeWithMaxStaleness() {
+        AtomicLong time = new AtomicLong();
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Integer> memoize = new Suppliers.ExpiringMemoizeSupplier<>(calls::incrementAndGet, Duration.ofSeconds(1), Duration.ofSeconds(1), time::get);
+        assertThat(memoize.get()).isEqualTo(1);
+        time.addAndGet(Duration.ofSeconds(5).toNanos());
+        // too stale, so reloaded
+        assertThat(memoize.get()).isEqualTo(2);
+    }
+
+    @Test
+    void memoizeWithIllegalTtl() {
+        assertThatThrownBy(() -> Suppliers.memoize(Suppliers.always("a"), Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Suppliers.memoize(Suppliers.always("a"), Duration.ofSeconds(-1)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Suppliers.memoize(Suppliers.always("a"), Duration.ofSeconds(1), Duration.ZERO))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void memoizeForever() {
+        AtomicLong time = new AtomicLong(Long.MAX_VALUE - 10);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Integer> memoize = new Suppliers.ExpiringMemoizeSupplier<>(calls::incrementAndGet, ChronoUnit.FOREVER.getDuration(), ChronoUnit.FOREVER.getDuration(), time::get);
+        assertThat(memoize.get()).isEqualTo(1);
+        // the ticker overflows, which must not make the value expire
+        time.addAndGet(Duration.ofDays(365).toNanos());
+        assertThat(memoize.get()).isEqualTo(1);
+        assertThat(calls).hasValue(1);
+    }
+
     @Test
     void closeable() throws Exception {
         I isup = new I();
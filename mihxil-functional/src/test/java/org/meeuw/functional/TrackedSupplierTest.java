@@ -0,0 +1,132 @@
+package org.meeuw.functional;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrackedSupplierTest {
+
+    @Test
+    void onlyDependantsAreRecalculated() {
+        AtomicInteger configVersion = new AtomicInteger(1);
+        AtomicInteger calculations = new AtomicInteger();
+
+        TrackedSupplier<String> config = Suppliers.tracked(() -> "config " + configVersion.get());
+        TrackedSupplier<String> other = Suppliers.tracked(() -> "other");
+        TrackedSupplier<String> rules = Suppliers.tracked(() -> "rules for " + config.get());
+        List<TrackedSupplier<String>> tables = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            final int n = i;
+            tables.add(Suppliers.tracked(() -> {
+                calculations.incrementAndGet();
+                return "table " + n + " from " + (n < 3 ? rules.get() : other.get());
+            }));
+        }
+        tables.forEach(TrackedSupplier::get);
+        assertThat(calculations.get()).isEqualTo(300);
+        assertThat(rules.getDependencies()).containsExactly(config);
+        assertThat(config.getDependants()).containsExactly(rules);
+        assertThat(rules.getDependants()).hasSize(3);
+
+        configVersion.set(2);
+        config.invalidate();
+        assertThat(rules.isEvaluated()).isFalse();
+        assertThat(tables.get(2).isEvaluated()).isFalse();
+        assertThat(tables.get(3).isEvaluated()).isTrue();
+        assertThat(other.isEvaluated()).isTrue();
+
+        tables.forEach(TrackedSupplier::get);
+        assertThat(calculations.get()).isEqualTo(303);
+        assertThat(tables.get(0).get()).isEqualTo("table 0 from rules for config 2");
+        assertThat(tables.get(0).toString()).endsWith("(tracked)");
+    }
+
+    @Test
+    void dependenciesMayChange() {
+        AtomicReference<TrackedSupplier<String>> choice = new AtomicReference<>();
+        TrackedSupplier<String> a = Suppliers.tracked(() -> "a");
+        TrackedSupplier<String> b = Suppliers.tracked(() -> "b");
+        choice.set(a);
+        TrackedSupplier<String> derived = Suppliers.tracked(() -> choice.get().get());
+        assertThat(derived.get()).isEqualTo("a");
+
+        choice.set(b);
+        a.invalidate();
+        assertThat(derived.get()).isEqualTo("b");
+        assertThat(derived.getDependencies()).containsExactly(b);
+        assertThat(a.getDependants()).isEmpty();
+
+        a.invalidate();
+        assertThat(derived.isEvaluated()).isTrue();
+    }
+
+    @Test
+    void invalidatedWhileCalculating() throws Exception {
+        AtomicInteger source = new AtomicInteger(1);
+        TrackedSupplier<Integer> config = Suppliers.tracked(source::get);
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        TrackedSupplier<Integer> derived = Suppliers.tracked(() -> {
+            int value = config.get();
+            read.countDown();
+            try {
+                invalidated.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value * 10;
+        });
+        AtomicReference<Integer> result = new AtomicReference<>();
+        Thread thread = new Thread(() -> result.set(derived.get()));
+        thread.start();
+        assertThat(read.await(10, TimeUnit.SECONDS)).isTrue();
+        source.set(2);
+        config.invalidate();
+        invalidated.countDown();
+        thread.join();
+
+        assertThat(result.get()).isEqualTo(10);
+        // the stale value was not memoized
+        assertThat(derived.isEvaluated()).isFalse();
+    }
+
+    @Test
+    void dependantsAreWeak() throws Exception {
+        TrackedSupplier<Integer> base = Suppliers.tracked(() -> 1);
+        TrackedSupplier<Integer> derived = Suppliers.tracked(() -> base.get() + 1);
+        assertThat(derived.get()).isEqualTo(2);
+        assertThat(base.getDependants()).containsExactly(derived);
+
+        WeakReference<TrackedSupplier<Integer>> reference = new WeakReference<>(derived);
+        derived = null;
+        for (int i = 0; i < 10 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(reference.get()).isNull();
+        assertThat(base.getDependants()).isEmpty();
+        base.invalidate();
+        assertThat(base.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cyclic() {
+        AtomicReference<TrackedSupplier<String>> other = new AtomicReference<>();
+        TrackedSupplier<String> a = Suppliers.tracked(() -> other.get().get());
+        TrackedSupplier<String> b = Suppliers.tracked(a::get);
+        other.set(b);
+        assertThatThrownBy(a::get).isInstanceOf(IllegalStateException.class);
+        // must terminate
+        a.invalidate();
+        assertThat(b.isEvaluated()).isFalse();
+    }
+}
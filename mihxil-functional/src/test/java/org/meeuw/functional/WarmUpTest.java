@@ -0,0 +1,169 @@
+package org.meeuw.functional;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WarmUpTest {
+
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrently() {
+        CountDownLatch all = new CountDownLatch(3);
+        List<UnwrappableSupplier<Integer, Supplier<Integer>>> suppliers = Arrays.asList(
+            memoize(() -> await(all, 1)),
+            memoize(() -> await(all, 2)),
+            memoize(() -> await(all, 3))
+        );
+        WarmUp.Report report = Suppliers.warmUp(suppliers, executor, Duration.ofSeconds(10));
+
+        // would not finish if evaluated one after another
+        assertThat(report.isComplete()).isTrue();
+        assertThat(report.getDurations()).containsOnlyKeys(suppliers.toArray(new Supplier[0]));
+        for (UnwrappableSupplier<Integer, Supplier<Integer>> s : suppliers) {
+            assertThat(((Suppliers.MemoizeSupplier<Integer>) s).isEvaluated()).isTrue();
+        }
+        assertThat(report.toString()).startsWith("warm up in PT");
+    }
+
+    @Test
+    void dependencies() {
+        AtomicInteger counter = new AtomicInteger();
+        UnwrappableSupplier<Integer, Supplier<Integer>> first = memoize(counter::incrementAndGet);
+        UnwrappableSupplier<Integer, Supplier<Integer>> second = memoize(() -> {
+            assertThat(counter.get()).isEqualTo(1);
+            return counter.incrementAndGet();
+        });
+        UnwrappableSupplier<Integer, Supplier<Integer>> third = memoize(() -> {
+            assertThat(counter.get()).isEqualTo(2);
+            return counter.incrementAndGet();
+        });
+
+        WarmUp.Report report = new WarmUp()
+            .register(third, second, first)
+            .register(second, first)
+            .run(executor);
+
+        assertThat(report.getFailures()).isEmpty();
+        assertThat(report.isComplete()).isTrue();
+        assertThat(third.get()).isEqualTo(3);
+    }
+
+    @Test
+    void failedDependency() {
+        Supplier<Integer> failing = memoize(() -> {
+            throw new IllegalStateException("no database");
+        });
+        AtomicInteger called = new AtomicInteger();
+        Supplier<Integer> dependent = memoize(called::incrementAndGet);
+        Supplier<Integer> independent = memoize(() -> 1);
+
+        WarmUp.Report report = new WarmUp()
+            .register(dependent, failing)
+            .register(independent)
+            .run(executor, Duration.ofSeconds(10));
+
+        assertThat(report.isComplete()).isFalse();
+        assertThat(report.getFailures()).containsOnlyKeys(failing);
+        assertThat(report.getFailures().get(failing)).hasMessage("no database");
+        assertThat(report.getUnfinished()).containsExactly(dependent);
+        assertThat(report.getDurations()).containsOnlyKeys(failing, independent);
+        assertThat(called.get()).isEqualTo(0);
+        assertThat(report.toString()).contains("failed: java.lang.IllegalStateException: no database");
+    }
+
+    @Test
+    void deadline() {
+        CountDownLatch release = new CountDownLatch(2);
+        Supplier<Integer> slow = memoize(() -> await(release, 1));
+        Supplier<Integer> after = memoize(() -> 2);
+        Supplier<Integer> fast = memoize(() -> 3);
+        try {
+            WarmUp.Report report = new WarmUp()
+                .register(slow)
+                .register(after, slow)
+                .register(fast)
+                .run(executor, Duration.ofMillis(50));
+            assertThat(report.getDurations()).containsOnlyKeys(fast);
+            assertThat(report.getUnfinished()).containsExactly(slow, after);
+            assertThat(report.getElapsed()).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void error() {
+        Supplier<Integer> failing = memoize(() -> {
+            throw new AssertionError("not initialized");
+        });
+        WarmUp.Report report = new WarmUp()
+            .register(failing)
+            .run(executor, Duration.ofSeconds(10));
+        assertThat(report.isComplete()).isFalse();
+        assertThat(report.getFailures().get(failing)).isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void notRecordedAfterDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(2);
+        CountDownLatch finished = new CountDownLatch(1);
+        Supplier<Integer> slow = memoize(() -> {
+            try {
+                return await(release, 1);
+            } finally {
+                finished.countDown();
+            }
+        });
+        WarmUp.Report report = new WarmUp()
+            .register(slow)
+            .run(executor, Duration.ofMillis(50));
+        release.countDown();
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(10);
+        assertThat(report.getDurations()).isEmpty();
+        assertThat(report.getUnfinished()).containsExactly(slow);
+        assertThat(report.toString()).contains("unfinished");
+    }
+
+    @Test
+    void cycle() {
+        Supplier<Integer> a = () -> 1;
+        Supplier<Integer> b = () -> 2;
+        WarmUp warmUp = new WarmUp().register(a, b);
+        assertThatThrownBy(() -> warmUp.register(b, a)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> warmUp.register(a, a)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static UnwrappableSupplier<Integer, Supplier<Integer>> memoize(Supplier<Integer> supplier) {
+        return Suppliers.memoize(supplier);
+    }
+
+    private static int await(CountDownLatch latch, int value) {
+        latch.countDown();
+        try {
+            if (! latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("timeout");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+}
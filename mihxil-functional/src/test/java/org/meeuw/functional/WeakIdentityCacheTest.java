@@ -0,0 +1,126 @@
+package org.meeuw.functional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeakIdentityCacheTest {
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    static class Source {
+        final String value;
+
+        Source(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            throw new AssertionError("equals should not be called");
+        }
+
+        @Override
+        public int hashCode() {
+            throw new AssertionError("hashCode should not be called");
+        }
+    }
+
+    @Test
+    void identity() {
+        Function<Source, String> upper = s -> {
+            calls.incrementAndGet();
+            return s == null ? null : s.value.toUpperCase();
+        };
+        Function<Source, String> memoized = Functions.memoizeWeakIdentity(upper);
+        Source a = new Source("a");
+        Source otherA = new Source("a");
+        assertThat(memoized.apply(a)).isEqualTo("A");
+        assertThat(memoized.apply(a)).isEqualTo("A");
+        assertThat(memoized.apply(otherA)).isEqualTo("A");
+        assertThat(memoized.apply(null)).isNull();
+        assertThat(memoized.apply(null)).isNull();
+        assertThat(calls.get()).isEqualTo(3);
+
+        assertThat(memoized).isEqualTo(Functions.memoizeWeakIdentity(upper));
+        assertThat(((Unwrappable<?>) memoized).unwrap()).isSameAs(upper);
+        assertThat(memoized.toString()).endsWith("(memoizeWeakIdentity)");
+
+        CacheStatistics statistics = ((Memoized) memoized).statistics();
+        assertThat(statistics.getHitCount()).isEqualTo(2);
+        assertThat(statistics.getMissCount()).isEqualTo(3);
+        assertThat(statistics.getSize()).isEqualTo(3);
+        ((Memoized) memoized).invalidateAll();
+        memoized.apply(a);
+        assertThat(calls.get()).isEqualTo(4);
+    }
+
+    @Test
+    void failuresAreNotMemoized() {
+        WeakIdentityCache<String> cache = new WeakIdentityCache<>();
+        Object key = new Object();
+        assertThatThrownBy(() -> cache.get(key, k -> {
+            throw new IllegalStateException();
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.get(key, k -> "x")).isEqualTo("x");
+    }
+
+    @Test
+    void collectedKeysAreExpunged() throws InterruptedException {
+        WeakIdentityCache<String> cache = new WeakIdentityCache<>();
+        Object survivor = new Object();
+        cache.get(survivor, k -> "survivor");
+        for (int i = 0; i < 100; i++) {
+            cache.get(new Object(), k -> "garbage");
+        }
+        assertThat(cache.size()).isEqualTo(101);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cache.size() > 1 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+            // the cleanup happens as part of normal calls
+            cache.get(survivor, k -> "again");
+        }
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(survivor, k -> "again")).isEqualTo("survivor");
+        assertThat(cache.statistics().getEvictionCount()).isEqualTo(100);
+    }
+
+    @Test
+    void singleEvaluationUnderConcurrency() throws Exception {
+        WeakIdentityCache<Integer> cache = new WeakIdentityCache<>();
+        Object[] keys = new Object[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Object();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (Object key : keys) {
+                        cache.get(key, k -> calls.incrementAndGet());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertThat(calls.get()).isEqualTo(100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}